@@ -0,0 +1,523 @@
+package com.example.shoplinker;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import net.minecraft.commands.CommandSource;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.network.chat.Component;
+import net.minecraft.world.phys.Vec2;
+import net.minecraft.world.phys.Vec3;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Headless load-test harness for ShopLinker.
+ * <p>
+ * It wires the real ShopManager, ShopFileManager, analytics, audit log and expiry scheduler to a
+ * temporary directory and replays synthetic "/shop" traffic through the real Brigadier command tree,
+ * using stub command sources instead of a game server. Simulated players have no ServerPlayer entity;
+ * ShopCommands resolves them by name through its player resolver instead. Like on a real server, all
+ * commands run on a single "server thread"; many simulated players submit commands to it concurrently
+ * and wait for the result, so reported latencies include queueing.
+ * <p>
+ * The workload mixes Zipf-distributed "/shop info" lookups (a few popular shops get most views),
+ * occasional "/shop list", and bursts of adds and edits. At the end it reports throughput, p50/p99
+ * latency per command, bytes written to disk and the server thread's allocation rate, so persistence
+ * and indexing changes can be compared under the same seeded workload.
+ * <p>
+ * Run with {@code ./gradlew loadTest -PloadTestArgs="players=100 shops=5000 duration=60"}.
+ * Arguments are {@code key=value} pairs; see {@link Settings} for the list and defaults.
+ */
+public class ShopLoadTest {
+
+    /**
+     * Command kinds replayed by the harness.
+     */
+    enum Op { INFO, LIST, ADD, EDIT, MODIFY, REMOVE }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = Settings.parse(args);
+        System.out.println("ShopLinker load test: " + settings);
+
+        Path dir = settings.dir != null ? settings.dir : Files.createTempDirectory("shoplinker-loadtest");
+        new ShopLoadTest(settings, dir).run();
+    }
+
+    private final Settings settings;
+    private final Path dir;
+    private final CommandDispatcher<CommandSourceStack> dispatcher = new CommandDispatcher<>();
+    private final ExecutorService serverThread = Executors.newSingleThreadExecutor(r -> new Thread(r, "Server thread"));
+    private final List<String> popularNames = new ArrayList<>(); // Zipf targets, most popular first
+    private final Map<Op, List<long[]>> latencies = new EnumMap<>(Op.class); // Per-player latency buffers
+    private final Map<String, UUID> playerUUIDs = new HashMap<>(); // Simulated player name -> UUID, read-only once running
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicInteger nextShopId = new AtomicInteger();
+    private volatile boolean recording;
+    private double[] zipfCdf;
+
+    ShopLoadTest(Settings settings, Path dir) {
+        this.settings = settings;
+        this.dir = dir;
+        for (Op op : Op.values()) {
+            latencies.put(op, new CopyOnWriteArrayList<>());
+        }
+    }
+
+    void run() throws Exception {
+        List<Player> players = createPlayers();
+        setUpMod(players);
+        ShopCommands.register(dispatcher);
+        buildZipf(popularNames.size());
+
+        // Warm up the JIT and caches, then measure.
+        System.out.printf(Locale.ROOT, "Warming up for %ds...%n", settings.warmupSeconds);
+        drive(players, settings.warmupSeconds);
+        for (List<long[]> buffers : latencies.values()) {
+            buffers.clear();
+        }
+
+        long otherBytesBefore = otherBytesOnDisk();
+        long shopBytesBefore = ShopLinker.shopFileManager.getBytesWritten();
+        long serverThreadId = serverThreadId();
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getThreadAllocatedBytes(serverThreadId);
+
+        System.out.printf(Locale.ROOT, "Measuring for %ds...%n", settings.durationSeconds);
+        recording = true;
+        long start = System.nanoTime();
+        drive(players, settings.durationSeconds);
+        long elapsedNanos = System.nanoTime() - start;
+        recording = false;
+
+        long allocated = threads.getThreadAllocatedBytes(serverThreadId) - allocatedBefore;
+        long shopBytes = ShopLinker.shopFileManager.getBytesWritten() - shopBytesBefore;
+        serverThread.submit(() -> {
+            // Flush the audit log and the stats before measuring them
+            ShopLinker.shopAuditLog.close();
+            ShopLinker.shopAnalytics.close();
+        }).get();
+        long otherBytes = otherBytesOnDisk() - otherBytesBefore;
+        serverThread.shutdown();
+
+        report(elapsedNanos, shopBytes, otherBytes, allocated);
+    }
+
+    private List<Player> createPlayers() {
+        List<Player> players = new ArrayList<>(settings.players);
+        for (int i = 0; i < settings.players; i++) {
+            UUID uuid = new UUID(0x5107L, i);
+            String name = "Player" + i;
+            int permission = i < settings.operators ? 2 : 0;
+            // No entity: a real ServerPlayer needs a running server, and commands only need the UUID.
+            CommandSourceStack source = new CommandSourceStack(new CountingSource(), Vec3.ZERO, Vec2.ZERO, null,
+                    permission, name, Component.literal(name), null, null);
+            playerUUIDs.put(name, uuid);
+            players.add(new Player(uuid, source, new Random(settings.seed * 31 + i)));
+        }
+        ShopCommands.playerResolver = source -> playerUUIDs.get(source.getTextName());
+        return players;
+    }
+
+    private void setUpMod(List<Player> players) {
+        // Seed the registry, spreading ownership over the simulated players.
+        List<ShopEntry> seed = new ArrayList<>(settings.shops);
+        for (int i = 0; i < settings.shops; i++) {
+            Player owner = players.get(i % players.size());
+            String name = shopName(nextShopId.getAndIncrement());
+            seed.add(new ShopEntry(name, "Seeded shop number " + i, i % 3 == 0 ? "https://example.com/shop/" + i : "", owner.uuid));
+            owner.ownedShops.add(name);
+            popularNames.add(name);
+        }
+        ShopFileManager seedWriter = new ShopFileManager(dir.resolve("shoplinker_shops.json"));
+        seedWriter.saveShops(seed);
+
+        ShopLinker.shopFileManager = new ShopFileManager(dir.resolve("shoplinker_shops.json"));
+        ShopLinker.shopManager = new ShopManager(ShopLinker.shopFileManager.loadShops());
+        ShopLinker.shopAnalytics = new ShopAnalytics(dir.resolve("shoplinker_stats.json"), TimeUnit.SECONDS.toMillis(5), TimeUnit.DAYS.toMillis(30));
+        ShopLinker.shopAuditLog = new ShopAuditLog(dir.resolve("shoplinker_audit"), 1024 * 1024);
+        // The expiry scheduler is wired so commands can reschedule shops; its tick needs a server and is not driven.
+        ShopLinker.shopExpiry = new ShopExpiryScheduler(ShopLinker.shopManager,
+                dir.resolve("shoplinker_archived_shops.jsonl"), 0, 0, 5);
+    }
+
+    /**
+     * Runs every player concurrently for the given duration.
+     */
+    private void drive(List<Player> players, int seconds) throws InterruptedException, ExecutionException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        try (ExecutorService playerThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<CompletableFuture<Void>> running = new ArrayList<>();
+            for (Player player : players) {
+                running.add(CompletableFuture.runAsync(() -> playerLoop(player, deadline), playerThreads));
+            }
+            CompletableFuture.allOf(running.toArray(new CompletableFuture<?>[0])).get();
+        }
+    }
+
+    private void playerLoop(Player player, long deadline) {
+        Map<Op, LatencyBuffer> buffers = new EnumMap<>(Op.class);
+        for (Op op : Op.values()) {
+            buffers.put(op, new LatencyBuffer());
+        }
+
+        try {
+            while (System.nanoTime() < deadline) {
+                if (player.random.nextDouble() < settings.burstChance) {
+                    // Bursty writes: a player (re)configuring their shops fires several commands back to back.
+                    for (int i = 0; i < settings.burstSize; i++) {
+                        execute(player, player.random.nextBoolean() ? Op.ADD : Op.EDIT, buffers);
+                    }
+                } else {
+                    execute(player, settings.pickOp(player.random), buffers);
+                }
+                if (settings.thinkMillis > 0) {
+                    Thread.sleep(player.random.nextInt(settings.thinkMillis * 2 + 1)); // Mean think time of thinkMillis
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (recording) {
+            for (Op op : Op.values()) {
+                latencies.get(op).add(buffers.get(op).toArray());
+            }
+        }
+    }
+
+    private void execute(Player player, Op op, Map<Op, LatencyBuffer> buffers) throws InterruptedException {
+        String command = buildCommand(player, op);
+        long submitted = System.nanoTime();
+        try {
+            int result = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return dispatcher.execute(command, player.source);
+                } catch (CommandSyntaxException e) {
+                    return 0;
+                }
+            }, serverThread).get();
+            if (result == 0) {
+                failures.increment();
+            }
+        } catch (ExecutionException e) {
+            failures.increment();
+        }
+        buffers.get(op).add(System.nanoTime() - submitted);
+    }
+
+    private String buildCommand(Player player, Op op) {
+        Random random = player.random;
+        switch (op) {
+            case INFO:
+                return "shop info \"" + popularNames.get(sampleZipf(random)) + "\"";
+            case LIST:
+                return "shop list";
+            case ADD: {
+                String name = shopName(nextShopId.getAndIncrement());
+                player.ownedShops.add(name);
+                player.addedShops.add(name);
+                return "shop add \"" + name + "\" \"Added during load test\" https://example.com/new/" + name;
+            }
+            case EDIT: {
+                String name = ownedShop(player);
+                return "shop edit \"" + name + "\" description=\"Edited " + random.nextInt(1_000_000) + "\" url=https://example.com/e/" + random.nextInt(1000);
+            }
+            case MODIFY:
+                return "shop modify \"" + ownedShop(player) + "\" description \"Modified " + random.nextInt(1_000_000) + "\"";
+            case REMOVE: {
+                // Only remove shops added during the run, so the Zipf targets stay valid.
+                // Without one, this becomes a "not found" removal, which exercises the suggestions.
+                if (player.addedShops.isEmpty()) {
+                    return "shop remove \"" + ownedShop(player) + "x\"";
+                }
+                String name = player.addedShops.remove(player.addedShops.size() - 1);
+                player.ownedShops.remove(name);
+                return "shop remove \"" + name + "\"";
+            }
+            default:
+                throw new IllegalStateException("Unknown op " + op);
+        }
+    }
+
+    private String ownedShop(Player player) {
+        List<String> owned = player.ownedShops;
+        return owned.isEmpty() ? popularNames.get(0) : owned.get(player.random.nextInt(owned.size()));
+    }
+
+    private static String shopName(int id) {
+        return "Shop" + Integer.toString(id, 36);
+    }
+
+    private void buildZipf(int n) {
+        zipfCdf = new double[n];
+        double sum = 0;
+        for (int rank = 1; rank <= n; rank++) {
+            sum += 1.0 / Math.pow(rank, settings.zipfExponent);
+            zipfCdf[rank - 1] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            zipfCdf[i] /= sum;
+        }
+    }
+
+    private int sampleZipf(Random random) {
+        int index = Arrays.binarySearch(zipfCdf, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, zipfCdf.length - 1);
+    }
+
+    /**
+     * Size of everything in the data directory except the shop file, which is replaced (not grown) on
+     * every save and is measured through ShopFileManager's byte counter instead.
+     */
+    private long otherBytesOnDisk() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().startsWith("shoplinker_shops.json"))
+                    .mapToLong(path -> path.toFile().length())
+                    .sum();
+        }
+    }
+
+    private long serverThreadId() throws InterruptedException, ExecutionException {
+        return serverThread.submit(() -> Thread.currentThread().threadId()).get();
+    }
+
+    private void report(long elapsedNanos, long shopBytes, long otherBytes, long allocatedBytes) {
+        double seconds = elapsedNanos / 1e9;
+        long totalOps = 0;
+        long[] all = new long[0];
+
+        System.out.println();
+        System.out.printf(Locale.ROOT, "%-8s %10s %12s %12s %12s%n", "command", "count", "p50 (ms)", "p99 (ms)", "max (ms)");
+        for (Op op : Op.values()) {
+            long[] samples = merge(latencies.get(op));
+            totalOps += samples.length;
+            all = concat(all, samples);
+            printRow(op.name().toLowerCase(Locale.ROOT), samples);
+        }
+        printRow("all", all);
+
+        System.out.println();
+        System.out.printf(Locale.ROOT, "Throughput:        %.1f commands/s (%d commands in %.1fs, %d failed)%n",
+                totalOps / seconds, totalOps, seconds, failures.sum());
+        System.out.printf(Locale.ROOT, "Shop file writes:  %.2f MB (%.1f KB/s)%n", shopBytes / 1e6, shopBytes / 1e3 / seconds);
+        System.out.printf(Locale.ROOT, "Other disk growth: %.2f MB (audit log, stats, archive)%n", otherBytes / 1e6);
+        System.out.printf(Locale.ROOT, "Server thread allocation: %.1f MB/s (%.1f KB/command)%n",
+                allocatedBytes / 1e6 / seconds, totalOps > 0 ? allocatedBytes / 1e3 / totalOps : 0.0);
+        System.out.printf(Locale.ROOT, "Chat messages sent: %d%n", messages.sum());
+        System.out.println("Data directory: " + dir);
+    }
+
+    private static void printRow(String label, long[] samples) {
+        if (samples.length == 0) {
+            System.out.printf(Locale.ROOT, "%-8s %10d %12s %12s %12s%n", label, 0, "-", "-", "-");
+            return;
+        }
+        Arrays.sort(samples);
+        System.out.printf(Locale.ROOT, "%-8s %10d %12.3f %12.3f %12.3f%n", label, samples.length,
+                percentile(samples, 0.50) / 1e6, percentile(samples, 0.99) / 1e6, samples[samples.length - 1] / 1e6);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    private static long[] merge(List<long[]> buffers) {
+        long[] merged = new long[0];
+        for (long[] buffer : buffers) {
+            merged = concat(merged, buffer);
+        }
+        return merged;
+    }
+
+    private static long[] concat(long[] a, long[] b) {
+        long[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    /**
+     * A simulated player: a named command source without an entity, plus its own random stream.
+     */
+    private static final class Player {
+        private final UUID uuid;
+        private final CommandSourceStack source;
+        private final Random random;
+        private final List<String> ownedShops = new ArrayList<>(); // Seeded and added shops, targets of edits
+        private final List<String> addedShops = new ArrayList<>(); // Shops added during the run, targets of removals
+
+        Player(UUID uuid, CommandSourceStack source, Random random) {
+            this.uuid = uuid;
+            this.source = source;
+            this.random = random;
+        }
+    }
+
+    /**
+     * Stub command output: counts the chat messages a real client would receive.
+     */
+    private final class CountingSource implements CommandSource {
+        @Override
+        public void sendSystemMessage(Component component) {
+            messages.increment();
+        }
+
+        @Override
+        public boolean acceptsSuccess() {
+            return true;
+        }
+
+        @Override
+        public boolean acceptsFailure() {
+            return true;
+        }
+
+        @Override
+        public boolean shouldInformAdmins() {
+            return false; // Would need a player list to broadcast to
+        }
+    }
+
+    /**
+     * Growable buffer of latency samples (nanoseconds), owned by a single player thread.
+     */
+    private static final class LatencyBuffer {
+        private long[] samples = new long[1024];
+        private int size;
+
+        void add(long nanos) {
+            if (size == samples.length) {
+                samples = Arrays.copyOf(samples, size * 2);
+            }
+            samples[size++] = nanos;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(samples, size);
+        }
+    }
+
+    /**
+     * Workload settings, parsed from {@code key=value} arguments.
+     */
+    static final class Settings {
+        int players = 50;          // Concurrent simulated players
+        int operators = 2;         // How many of them have permission level 2
+        int shops = 2000;          // Shops seeded before the run
+        int durationSeconds = 30;  // Measured run length
+        int warmupSeconds = 5;     // Unmeasured warm-up length
+        int thinkMillis = 50;      // Mean pause between a player's commands
+        double zipfExponent = 1.1; // Skew of /shop info lookups
+        double burstChance = 0.02; // Chance that a player's next action is a burst of adds/edits
+        int burstSize = 8;         // Commands per burst
+        long seed = 42;
+        Path dir;                  // Data directory, a fresh temp directory by default
+        Map<Op, Integer> mix = defaultMix();
+
+        static Settings parse(String[] args) {
+            Settings settings = new Settings();
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                for (String pair : arg.trim().split("\\s+")) {
+                    int eq = pair.indexOf('=');
+                    if (eq > 0) {
+                        values.put(pair.substring(0, eq), pair.substring(eq + 1));
+                    } else if (!pair.isEmpty()) {
+                        throw new IllegalArgumentException("Expected key=value, got '" + pair + "'");
+                    }
+                }
+            }
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                String value = entry.getValue();
+                switch (entry.getKey()) {
+                    case "players" -> settings.players = Integer.parseInt(value);
+                    case "operators" -> settings.operators = Integer.parseInt(value);
+                    case "shops" -> settings.shops = Integer.parseInt(value);
+                    case "duration" -> settings.durationSeconds = Integer.parseInt(value);
+                    case "warmup" -> settings.warmupSeconds = Integer.parseInt(value);
+                    case "think" -> settings.thinkMillis = Integer.parseInt(value);
+                    case "zipf" -> settings.zipfExponent = Double.parseDouble(value);
+                    case "burst" -> settings.burstChance = Double.parseDouble(value);
+                    case "burstSize" -> settings.burstSize = Integer.parseInt(value);
+                    case "seed" -> settings.seed = Long.parseLong(value);
+                    case "dir" -> settings.dir = Path.of(value);
+                    case "mix" -> settings.mix = parseMix(value);
+                    default -> throw new IllegalArgumentException("Unknown setting '" + entry.getKey() + "'");
+                }
+            }
+            if (settings.players < 1 || settings.shops < 1) {
+                throw new IllegalArgumentException("players and shops must be at least 1");
+            }
+            return settings;
+        }
+
+        /**
+         * The default command mix. Built with ordered puts: pickOp maps rolls to ops in iteration order,
+         * so the order must not change between runs for a seed to replay the same commands.
+         */
+        private static Map<Op, Integer> defaultMix() {
+            Map<Op, Integer> mix = new LinkedHashMap<>();
+            mix.put(Op.INFO, 70);
+            mix.put(Op.LIST, 2);
+            mix.put(Op.ADD, 8);
+            mix.put(Op.EDIT, 10);
+            mix.put(Op.MODIFY, 6);
+            mix.put(Op.REMOVE, 4);
+            return mix;
+        }
+
+        /**
+         * Parses a weighted mix such as {@code info:70,list:2,add:8,edit:10,modify:6,remove:4}.
+         */
+        private static Map<Op, Integer> parseMix(String value) {
+            Map<Op, Integer> mix = new LinkedHashMap<>();
+            for (String part : value.split(",")) {
+                String[] kv = part.split(":");
+                mix.put(Op.valueOf(kv[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(kv[1].trim()));
+            }
+            return mix;
+        }
+
+        Op pickOp(Random random) {
+            int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+            int roll = random.nextInt(total);
+            for (Map.Entry<Op, Integer> entry : mix.entrySet()) {
+                roll -= entry.getValue();
+                if (roll < 0) {
+                    return entry.getKey();
+                }
+            }
+            return Op.INFO;
+        }
+
+        @Override
+        public String toString() {
+            return "players=" + players + " operators=" + operators + " shops=" + shops + " duration=" + durationSeconds
+                    + "s warmup=" + warmupSeconds + "s think=" + thinkMillis + "ms zipf=" + zipfExponent
+                    + " burst=" + burstChance + "x" + burstSize + " seed=" + seed + " mix=" + mix;
+        }
+    }
+}
@@ -5,14 +5,58 @@ import net.neoforged.neoforge.common.ModConfigSpec;
 
 /**
  * This class handles the mod's configuration specifications using NeoForge's ModConfigSpec.
- * It's currently minimal as no custom configuration options have been defined yet.
- * This class provides the structure for a config file to be generated if needed in the future.
+ * Each option is exposed as a static value that can be read once the config has been loaded.
  */
 public class Config {
     // Builder for creating configuration entries
     private static final ModConfigSpec.Builder BUILDER = new ModConfigSpec.Builder();
 
+    // How often, in minutes, live shop view/impression counters are rolled up and saved.
+    public static final ModConfigSpec.IntValue STATS_ROLLUP_MINUTES = BUILDER
+            .comment("How often, in minutes, shop view and list impression counters are rolled up and saved.")
+            .defineInRange("statsRollupMinutes", 5, 1, 1440);
+
+    // How many days of hourly shop statistics are kept.
+    public static final ModConfigSpec.IntValue STATS_RETENTION_DAYS = BUILDER
+            .comment("How many days of hourly shop statistics are kept for /shop top.")
+            .defineInRange("statsRetentionDays", 30, 1, 3650);
+
+    // Size, in kilobytes, after which the active audit log segment is rotated and compressed.
+    public static final ModConfigSpec.IntValue AUDIT_SEGMENT_KB = BUILDER
+            .comment("Size, in kilobytes, after which the shop audit log segment is rotated and gzip-compressed.")
+            .defineInRange("auditSegmentKilobytes", 1024, 16, 1048576);
+
+    // Days an owner may stay offline before their shops expire (0 disables inactivity pruning).
+    public static final ModConfigSpec.IntValue SHOP_INACTIVE_DAYS = BUILDER
+            .comment("Days an owner may stay offline before their shops expire and are archived. 0 disables inactivity pruning.")
+            .defineInRange("shopInactiveDays", 0, 0, 3650);
+
+    // Hours before a shop expires at which its online owner is warned.
+    public static final ModConfigSpec.IntValue EXPIRY_WARNING_HOURS = BUILDER
+            .comment("Hours before a shop expires at which its owner is warned (when online or on login).")
+            .defineInRange("expiryWarningHours", 24, 0, 8760);
+
+    // Maximum number of expired shops pruned per server tick.
+    public static final ModConfigSpec.IntValue PRUNE_BATCH_SIZE = BUILDER
+            .comment("Maximum number of expired shops pruned and archived per server tick.")
+            .defineInRange("pruneBatchSize", 5, 1, 1000);
+
+    // Whether the read-only HTTP/JSON shop directory API is started with the server.
+    public static final ModConfigSpec.BooleanValue HTTP_ENABLED = BUILDER
+            .comment("Start a read-only HTTP/JSON API serving the shop directory (GET /shops).")
+            .define("httpEnabled", false);
+
+    // Address the HTTP API binds to.
+    public static final ModConfigSpec.ConfigValue<String> HTTP_HOST = BUILDER
+            .comment("Address the HTTP API binds to. Keep 127.0.0.1 unless it must be reachable from other machines.")
+            .define("httpHost", "127.0.0.1");
+
+    // Port the HTTP API listens on.
+    public static final ModConfigSpec.IntValue HTTP_PORT = BUILDER
+            .comment("Port the HTTP API listens on.")
+            .defineInRange("httpPort", 8765, 1, 65535);
+
     // The ModConfigSpec instance, which is built from the BUILDER.
     // This SPEC is registered with the mod container in the main mod class.
-    static final ModConfigSpec SPEC = BUILDER.build(); 
-}
\ No newline at end of file
+    static final ModConfigSpec SPEC = BUILDER.build();
+}
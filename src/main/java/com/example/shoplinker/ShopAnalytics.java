@@ -0,0 +1,341 @@
+package com.example.shoplinker;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import com.mojang.logging.LogUtils;
+import org.slf4j.Logger;
+
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks how often players look at each shop ("/shop info" views and "/shop list" impressions).
+ * Recording only bumps a LongAdder, so it adds no contention to command handling. The live counters
+ * are periodically rolled up into hourly buckets, which are persisted to their own JSON file
+ * (separate from the shop registry) and are the only data used to answer "/shop top".
+ * <p>
+ * Buckets are copied on write, so a rollup never changes a map that a pending save is still
+ * serializing. Periodic saves only happen when a rollup changed something, and run on a background
+ * writer thread through a temporary file, like the shop file itself.
+ */
+public class ShopAnalytics {
+
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final long BUCKET_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    // Index of the view counter inside a bucket's long[] pair
+    public static final int VIEWS = 0;
+    // Index of the impression counter inside a bucket's long[] pair
+    public static final int IMPRESSIONS = 1;
+
+    private final Gson gson;
+    private final Path filePath;
+    private final long rollupIntervalMillis;
+    private final long retentionMillis;
+
+    // Live, not yet rolled up counters keyed by the lowercased shop name
+    private final ConcurrentHashMap<String, LongAdder[]> liveCounters = new ConcurrentHashMap<>();
+    // Rolled up stats: bucket start (epoch hour) -> shop key -> [views, impressions]; maps are never modified once stored
+    private final TreeMap<Long, Map<String, long[]>> buckets = new TreeMap<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ShopLinker Stats Writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long nextRollupAt;
+    private boolean dirty; // Buckets changed since the last save
+
+    /**
+     * Constructs a ShopAnalytics instance backed by the given stats file.
+     *
+     * @param filePath The path to the JSON file where rolled up stats are stored.
+     * @param rollupIntervalMillis How often live counters are folded into the hourly buckets.
+     * @param retentionMillis How long hourly buckets are kept before being discarded.
+     */
+    public ShopAnalytics(Path filePath, long rollupIntervalMillis, long retentionMillis) {
+        this.filePath = filePath;
+        this.rollupIntervalMillis = rollupIntervalMillis;
+        this.retentionMillis = retentionMillis;
+        this.gson = new GsonBuilder().create(); // Compact output, this file is not meant to be hand edited
+        this.nextRollupAt = System.currentTimeMillis() + rollupIntervalMillis;
+    }
+
+    /**
+     * Records one "/shop info" view of a shop.
+     *
+     * @param shopName The name of the viewed shop.
+     */
+    public void recordView(String shopName) {
+        counters(shopName)[VIEWS].increment();
+    }
+
+    /**
+     * Records one appearance of a shop in a "/shop list" output.
+     *
+     * @param shopName The name of the listed shop.
+     */
+    public void recordImpression(String shopName) {
+        counters(shopName)[IMPRESSIONS].increment();
+    }
+
+    private LongAdder[] counters(String shopName) {
+        String key = shopName.toLowerCase(Locale.ROOT);
+        LongAdder[] adders = liveCounters.get(key); // Fast path, no allocation once the shop has been seen
+        if (adders == null) {
+            adders = liveCounters.computeIfAbsent(key, k -> new LongAdder[] { new LongAdder(), new LongAdder() });
+        }
+        return adders;
+    }
+
+    /**
+     * Drops the stats of a shop that was removed, so it no longer shows up in "/shop top".
+     *
+     * @param shopName The name of the removed shop.
+     */
+    public synchronized void forget(String shopName) {
+        String key = shopName.toLowerCase(Locale.ROOT);
+        liveCounters.remove(key);
+        for (Map.Entry<Long, Map<String, long[]>> entry : buckets.entrySet()) {
+            if (entry.getValue().containsKey(key)) {
+                Map<String, long[]> copy = new HashMap<>(entry.getValue());
+                copy.remove(key);
+                entry.setValue(copy);
+                dirty = true;
+            }
+        }
+    }
+
+    /**
+     * Moves the stats of a renamed shop to its new name.
+     *
+     * @param oldName The previous shop name.
+     * @param newName The new shop name.
+     */
+    public synchronized void rename(String oldName, String newName) {
+        String oldKey = oldName.toLowerCase(Locale.ROOT);
+        String newKey = newName.toLowerCase(Locale.ROOT);
+        if (oldKey.equals(newKey)) {
+            return; // Only the capitalization changed, the key is the same
+        }
+        LongAdder[] live = liveCounters.remove(oldKey);
+        if (live != null) {
+            LongAdder[] target = counters(newName);
+            target[VIEWS].add(live[VIEWS].sum());
+            target[IMPRESSIONS].add(live[IMPRESSIONS].sum());
+        }
+        for (Map.Entry<Long, Map<String, long[]>> entry : buckets.entrySet()) {
+            long[] moved = entry.getValue().get(oldKey);
+            if (moved != null) {
+                Map<String, long[]> copy = new HashMap<>(entry.getValue());
+                copy.remove(oldKey);
+                copy.merge(newKey, moved, (a, b) -> new long[] { a[VIEWS] + b[VIEWS], a[IMPRESSIONS] + b[IMPRESSIONS] });
+                entry.setValue(copy);
+                dirty = true;
+            }
+        }
+    }
+
+    /**
+     * Rolls up the stats if the rollup interval has elapsed, and saves them in the background
+     * if anything changed. Meant to be called every server tick; it is a single comparison most of the time.
+     *
+     * @param now The current time in epoch milliseconds.
+     */
+    public void tick(long now) {
+        if (now < nextRollupAt) {
+            return;
+        }
+        nextRollupAt = now + rollupIntervalMillis;
+        rollup(now);
+
+        List<StatsBucket> toSave = snapshotIfDirty();
+        if (toSave != null) {
+            writer.execute(() -> {
+                if (!write(toSave)) {
+                    markDirty(); // Retry with the next rollup
+                }
+            });
+        }
+    }
+
+    /**
+     * Folds the live counters into the hourly bucket containing {@code now}
+     * and drops buckets older than the retention window.
+     *
+     * @param now The current time in epoch milliseconds.
+     */
+    public synchronized void rollup(long now) {
+        long bucketStart = now / BUCKET_MILLIS;
+        Map<String, long[]> bucket = null;
+        for (Map.Entry<String, LongAdder[]> entry : liveCounters.entrySet()) {
+            long views = entry.getValue()[VIEWS].sumThenReset();
+            long impressions = entry.getValue()[IMPRESSIONS].sumThenReset();
+            if (views == 0 && impressions == 0) {
+                continue;
+            }
+            if (bucket == null) {
+                // Copy the current bucket instead of updating it in place, a save may still be reading it.
+                Map<String, long[]> current = buckets.get(bucketStart);
+                bucket = current != null ? new HashMap<>(current) : new HashMap<>();
+            }
+            long[] previous = bucket.get(entry.getKey());
+            long[] totals = previous != null ? previous.clone() : new long[2];
+            totals[VIEWS] += views;
+            totals[IMPRESSIONS] += impressions;
+            bucket.put(entry.getKey(), totals);
+        }
+        if (bucket != null) {
+            buckets.put(bucketStart, bucket);
+            dirty = true;
+        }
+
+        Map<Long, Map<String, long[]>> expired = buckets.headMap((now - retentionMillis) / BUCKET_MILLIS);
+        if (!expired.isEmpty()) {
+            expired.clear();
+            dirty = true;
+        }
+    }
+
+    /**
+     * Sums the rolled up stats of every shop over the given period.
+     * Live counters are rolled up first so the result includes recent activity.
+     *
+     * @param periodMillis The length of the period ending now, or a negative value for all retained history.
+     * @return A map of lowercased shop name to its [views, impressions] totals.
+     */
+    public synchronized Map<String, long[]> totals(long periodMillis) {
+        long now = System.currentTimeMillis();
+        rollup(now);
+        NavigableMap<Long, Map<String, long[]>> range = periodMillis < 0
+                ? buckets
+                : buckets.tailMap((now - periodMillis) / BUCKET_MILLIS, true);
+
+        Map<String, long[]> totals = new HashMap<>();
+        for (Map<String, long[]> bucket : range.values()) {
+            for (Map.Entry<String, long[]> entry : bucket.entrySet()) {
+                long[] sum = totals.computeIfAbsent(entry.getKey(), k -> new long[2]);
+                sum[VIEWS] += entry.getValue()[VIEWS];
+                sum[IMPRESSIONS] += entry.getValue()[IMPRESSIONS];
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Loads previously rolled up stats from the stats file, if it exists.
+     */
+    public synchronized void load() {
+        if (!filePath.toFile().exists()) {
+            LOGGER.info("Shop stats file does not exist, starting with empty stats: {}", filePath);
+            return;
+        }
+
+        try (FileReader reader = new FileReader(filePath.toFile())) {
+            Type listType = new TypeToken<ArrayList<StatsBucket>>(){}.getType();
+            List<StatsBucket> loaded = gson.fromJson(reader, listType);
+            if (loaded != null) {
+                for (StatsBucket bucket : loaded) {
+                    buckets.put(bucket.hour, new HashMap<>(bucket.counts));
+                }
+            }
+            LOGGER.info("Loaded {} hourly stat buckets from {}", buckets.size(), filePath);
+        } catch (IOException e) {
+            LOGGER.error("Failed to load shop stats from {}: {}", filePath, e.getMessage());
+        }
+    }
+
+    /**
+     * Rolls up the live counters, waits for pending background saves and saves the stats one last time
+     * if anything changed. Called when the server stops.
+     */
+    public void close() {
+        rollup(System.currentTimeMillis());
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<StatsBucket> toSave = snapshotIfDirty();
+        if (toSave != null) {
+            write(toSave);
+        }
+    }
+
+    private synchronized List<StatsBucket> snapshotIfDirty() {
+        if (!dirty) {
+            return null;
+        }
+        dirty = false;
+        // Bucket maps are never modified once stored, so sharing them with the writer is safe.
+        List<StatsBucket> toSave = new ArrayList<>(buckets.size());
+        for (Map.Entry<Long, Map<String, long[]>> entry : buckets.entrySet()) {
+            toSave.add(new StatsBucket(entry.getKey(), entry.getValue()));
+        }
+        return toSave;
+    }
+
+    private synchronized void markDirty() {
+        dirty = true;
+    }
+
+    /**
+     * Writes the stats to a temporary file which then replaces the stats file,
+     * so a crash mid-write never leaves a truncated file behind.
+     */
+    private boolean write(List<StatsBucket> toSave) {
+        try {
+            if (filePath.getParent() != null) {
+                filePath.getParent().toFile().mkdirs();
+            }
+
+            Path tempPath = filePath.resolveSibling(filePath.getFileName() + ".tmp");
+            synchronized (writer) { // Background saves and close() share the temporary file
+                try (FileWriter out = new FileWriter(tempPath.toFile())) {
+                    gson.toJson(toSave, out);
+                }
+                try {
+                    Files.move(tempPath, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tempPath, filePath, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            LOGGER.error("Failed to save shop stats to {}: {}", filePath, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * On-disk form of one hourly bucket.
+     */
+    private static class StatsBucket {
+        private long hour; // Bucket start, in hours since the epoch
+        private Map<String, long[]> counts;
+
+        StatsBucket(long hour, Map<String, long[]> counts) {
+            this.hour = hour;
+            this.counts = counts;
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package com.example.shoplinker;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.mojang.logging.LogUtils;
+import org.slf4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Append-only audit log of every shop mutation (who changed what, when, and the before/after values).
+ * <p>
+ * Records are queued by the caller and written as JSON lines by a background writer thread, so the
+ * server thread never waits on disk. When the active segment exceeds the configured size it is rotated
+ * and gzip-compressed. A per-shop offset index (kept in memory and appended to {@code audit.idx})
+ * points at each record, so "/shop history" reads only the records it needs instead of whole logs.
+ * <p>
+ * A failed write (full disk, failed rotation, ...) does not stop the writer: it reopens the segment and
+ * retries the same record with a growing delay, while new records keep queuing in memory. Should the
+ * writer thread still die, the next record restarts it; recording never fails the mutation it describes.
+ */
+public class ShopAuditLog {
+
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final String SEGMENT_PREFIX = "audit-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String COMPRESSED_SUFFIX = ".log.gz";
+    private static final String INDEX_FILE = "audit.idx";
+    // Queued by close() to tell the writer that everything before it has been handed over
+    private static final AuditRecord END_OF_LOG = new AuditRecord(0, null, "end", null, null);
+    private static final long MAX_RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final Gson gson = new GsonBuilder().create(); // One record per line, so no pretty printing
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final BlockingQueue<AuditRecord> queue = new LinkedBlockingQueue<>();
+    // Lowercased shop name -> locations of the records that mention it, in write order
+    private final ConcurrentHashMap<String, List<RecordLocation>> index = new ConcurrentHashMap<>();
+    private volatile Thread writerThread;
+    private volatile boolean closed;
+
+    // The following fields are only touched by the writer thread once it is started
+    private int activeSegment;
+    private long activeSize;
+    private OutputStream segmentOut;
+    private Writer indexOut;
+
+    /**
+     * Creates the audit log, loads its offset index and starts the background writer.
+     *
+     * @param directory The directory holding the log segments and the index.
+     * @param maxSegmentBytes The size after which the active segment is rotated and compressed.
+     */
+    public ShopAuditLog(Path directory, long maxSegmentBytes) {
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        directory.toFile().mkdirs();
+        this.activeSegment = findLatestSegment();
+        loadIndex();
+
+        this.writerThread = startWriter();
+    }
+
+    private Thread startWriter() {
+        Thread thread = new Thread(this::writeLoop, "ShopLinker Audit Writer");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Queues a mutation record for writing. Never blocks, and never throws: the mutation has already
+     * been applied when this is called.
+     *
+     * @param actor The UUID of the player who made the change, or null for the console/server.
+     * @param action The kind of mutation ("add", "remove", "modify", ...).
+     * @param before The shop state before the change, or null if it did not exist.
+     * @param after The shop state after the change, or null if it no longer exists.
+     */
+    public void record(UUID actor, String action, ShopEntry before, ShopEntry after) {
+        if (closed) {
+            LOGGER.warn("Audit log is closed, dropping '{}' record for {}", action, before != null ? before.getName() : after.getName());
+            return;
+        }
+        if (!writerThread.isAlive()) {
+            restartWriter();
+        }
+        queue.add(new AuditRecord(System.currentTimeMillis(), actor, action, snapshot(before), snapshot(after)));
+    }
+
+    /**
+     * Copies a shop entry so later in-place edits do not leak into a queued record.
+     *
+     * @param shop The shop to copy, may be null.
+     * @return A detached copy, or null if {@code shop} was null.
+     */
+    public static ShopEntry snapshot(ShopEntry shop) {
+        return shop == null ? null : new ShopEntry(shop);
+    }
+
+    /**
+     * Looks up the most recent records mentioning a shop, using the offset index.
+     *
+     * @param shopName The shop name (current or former).
+     * @param limit The maximum number of records to return.
+     * @return The matching records, oldest first.
+     */
+    public List<AuditRecord> history(String shopName, int limit) {
+        List<RecordLocation> locations = index.get(shopName.toLowerCase(Locale.ROOT));
+        if (locations == null) {
+            return Collections.emptyList();
+        }
+
+        List<RecordLocation> wanted;
+        synchronized (locations) {
+            wanted = new ArrayList<>(locations.subList(Math.max(0, locations.size() - limit), locations.size()));
+        }
+        // Read segment by segment, in offset order, so a compressed segment is only streamed once.
+        wanted.sort(Comparator.comparingInt(RecordLocation::segment).thenComparingLong(RecordLocation::offset));
+
+        List<AuditRecord> records = new ArrayList<>(wanted.size());
+        int i = 0;
+        while (i < wanted.size()) {
+            int segment = wanted.get(i).segment();
+            int end = i;
+            while (end < wanted.size() && wanted.get(end).segment() == segment) {
+                end++;
+            }
+            try {
+                readRecords(segment, wanted.subList(i, end), records);
+            } catch (IOException | JsonParseException e) {
+                LOGGER.error("Failed to read audit segment {}: {}", segment, e.getMessage());
+            }
+            i = end;
+        }
+        return records;
+    }
+
+    private void readRecords(int segment, List<RecordLocation> locations, List<AuditRecord> out) throws IOException {
+        File plain = segmentPath(segment, SEGMENT_SUFFIX).toFile();
+        if (plain.exists()) {
+            try (RandomAccessFile file = new RandomAccessFile(plain, "r")) {
+                for (RecordLocation location : locations) {
+                    byte[] bytes = new byte[location.length()];
+                    file.seek(location.offset());
+                    file.readFully(bytes);
+                    out.add(gson.fromJson(new String(bytes, StandardCharsets.UTF_8), AuditRecord.class));
+                }
+                return;
+            } catch (FileNotFoundException e) {
+                // Rotated away between the check and the open, read the compressed copy instead
+            }
+        }
+
+        // Rotated segment: skip through the decompressed stream up to each record.
+        try (InputStream in = new GZIPInputStream(new FileInputStream(segmentPath(segment, COMPRESSED_SUFFIX).toFile()))) {
+            long position = 0;
+            for (RecordLocation location : locations) {
+                in.skipNBytes(location.offset() - position);
+                byte[] bytes = in.readNBytes(location.length());
+                position = location.offset() + bytes.length;
+                out.add(gson.fromJson(new String(bytes, StandardCharsets.UTF_8), AuditRecord.class));
+            }
+        }
+    }
+
+    /**
+     * Stops accepting records, waits for the queued ones to be written and closes the files.
+     */
+    public void close() {
+        closed = true;
+        queue.add(END_OF_LOG);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            LOGGER.error("Audit writer did not finish in time, {} queued records were not written", queue.size());
+        }
+    }
+
+    private synchronized void restartWriter() {
+        if (closed || writerThread.isAlive()) {
+            return; // Closing, or another caller already restarted it
+        }
+        LOGGER.error("Audit writer had stopped, restarting it ({} records queued)", queue.size());
+        writerThread = startWriter();
+    }
+
+    private void writeLoop() {
+        try {
+            AuditRecord record;
+            while ((record = queue.take()) != END_OF_LOG) {
+                writeWithRetry(record);
+            }
+        } catch (InterruptedException e) {
+            LOGGER.warn("Audit writer interrupted with {} records queued", queue.size());
+        } finally {
+            closeQuietly(segmentOut);
+            closeQuietly(indexOut);
+            segmentOut = null; // Reopened by a restarted writer
+            indexOut = null;
+        }
+    }
+
+    /**
+     * Writes one record, reopening the files and retrying with a growing delay until it succeeds.
+     */
+    private void writeWithRetry(AuditRecord record) throws InterruptedException {
+        long delay = TimeUnit.SECONDS.toMillis(1);
+        while (true) {
+            try {
+                if (segmentOut == null) {
+                    openActiveSegment();
+                }
+                write(record);
+                return;
+            } catch (IOException e) {
+                LOGGER.error("Failed to write audit record, retrying in {}s ({} more queued): {}",
+                        delay / 1000, queue.size(), e.getMessage());
+                closeQuietly(segmentOut);
+                segmentOut = null;
+            } catch (RuntimeException e) {
+                // Not a disk problem, retrying would fail the same way; skip the record but keep the writer alive.
+                LOGGER.error("Failed to serialize '{}' audit record, skipping it", record.action, e);
+                return;
+            }
+            Thread.sleep(delay);
+            delay = Math.min(delay * 2, MAX_RETRY_DELAY_MILLIS);
+        }
+    }
+
+    private void write(AuditRecord record) throws IOException {
+        byte[] line = (gson.toJson(record) + "\n").getBytes(StandardCharsets.UTF_8);
+        if (activeSize > 0 && activeSize + line.length > maxSegmentBytes) {
+            rotate();
+        }
+
+        long offset = activeSize;
+        segmentOut.write(line);
+        segmentOut.flush();
+        activeSize += line.length;
+
+        // Index the record under every name it mentions, so renamed shops keep their history.
+        Set<String> keys = new LinkedHashSet<>();
+        if (record.before != null) {
+            keys.add(record.before.getName().toLowerCase(Locale.ROOT));
+        }
+        if (record.after != null) {
+            keys.add(record.after.getName().toLowerCase(Locale.ROOT));
+        }
+        // The trailing newline is not part of the record
+        RecordLocation location = new RecordLocation(activeSegment, offset, line.length - 1);
+        for (String key : keys) {
+            addToIndex(key, location);
+        }
+
+        // The record itself is on disk, so a failing index file must not make it be written twice.
+        try {
+            if (indexOut == null) {
+                indexOut = new BufferedWriter(new FileWriter(directory.resolve(INDEX_FILE).toFile(), StandardCharsets.UTF_8, true));
+            }
+            for (String key : keys) {
+                indexOut.write(key + "\t" + location.segment() + "\t" + location.offset() + "\t" + location.length() + "\n");
+            }
+            indexOut.flush();
+        } catch (IOException e) {
+            LOGGER.error("Failed to append to the audit index, history of {} will be incomplete after a restart: {}", keys, e.getMessage());
+            closeQuietly(indexOut);
+            indexOut = null;
+        }
+    }
+
+    private void rotate() throws IOException {
+        segmentOut.close();
+        Path plain = segmentPath(activeSegment, SEGMENT_SUFFIX);
+        Path compressed = segmentPath(activeSegment, COMPRESSED_SUFFIX);
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(compressed.toFile()))) {
+            Files.copy(plain, out);
+        }
+        Files.delete(plain);
+        LOGGER.info("Rotated audit segment {} ({} bytes)", compressed, activeSize);
+
+        activeSegment++;
+        openActiveSegment();
+    }
+
+    private void openActiveSegment() throws IOException {
+        File file = segmentPath(activeSegment, SEGMENT_SUFFIX).toFile();
+        activeSize = file.length();
+        segmentOut = new FileOutputStream(file, true);
+        if (activeSize > 0 && !endsWithNewline(file)) {
+            // A previous write failed halfway; end the torn line so the next record starts on its own.
+            segmentOut.write('\n');
+            activeSize++;
+        }
+    }
+
+    private static boolean endsWithNewline(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            in.seek(in.length() - 1);
+            return in.read() == '\n';
+        }
+    }
+
+    private int findLatestSegment() {
+        int latest = 0;
+        String[] names = directory.toFile().list();
+        if (names != null) {
+            for (String name : names) {
+                if (!name.startsWith(SEGMENT_PREFIX)) {
+                    continue;
+                }
+                String number = name.substring(SEGMENT_PREFIX.length()).replace(COMPRESSED_SUFFIX, "").replace(SEGMENT_SUFFIX, "");
+                try {
+                    int segment = Integer.parseInt(number);
+                    // A compressed segment is closed for good, so writing resumes after it.
+                    latest = Math.max(latest, name.endsWith(COMPRESSED_SUFFIX) ? segment + 1 : segment);
+                } catch (NumberFormatException e) {
+                    // Not one of our segments
+                }
+            }
+        }
+        return latest;
+    }
+
+    private void loadIndex() {
+        File file = directory.resolve(INDEX_FILE).toFile();
+        if (!file.exists()) {
+            return;
+        }
+
+        int entries = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts.length != 4) {
+                    continue; // Torn write from a crash, skip it
+                }
+                addToIndex(parts[0], new RecordLocation(Integer.parseInt(parts[1]), Long.parseLong(parts[2]), Integer.parseInt(parts[3])));
+                entries++;
+            }
+            LOGGER.info("Loaded {} audit index entries from {}", entries, file);
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.error("Failed to load audit index from {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void addToIndex(String key, RecordLocation location) {
+        List<RecordLocation> locations = index.computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>()));
+        locations.add(location);
+    }
+
+    private Path segmentPath(int segment, String suffix) {
+        return directory.resolve(SEGMENT_PREFIX + String.format("%06d", segment) + suffix);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            LOGGER.error("Failed to close audit file: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Position of one record inside a (possibly compressed) segment.
+     */
+    private record RecordLocation(int segment, long offset, int length) {
+    }
+
+    /**
+     * A single audited mutation, as stored on disk.
+     */
+    public static class AuditRecord {
+        private long timestamp;
+        private UUID actor; // null when the change came from the console or the server itself
+        private String action;
+        private ShopEntry before;
+        private ShopEntry after;
+
+        AuditRecord(long timestamp, UUID actor, String action, ShopEntry before, ShopEntry after) {
+            this.timestamp = timestamp;
+            this.actor = actor;
+            this.action = action;
+            this.before = before;
+            this.after = after;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public UUID getActor() {
+            return actor;
+        }
+
+        public String getAction() {
+            return action;
+        }
+
+        public ShopEntry getBefore() {
+            return before;
+        }
+
+        public ShopEntry getAfter() {
+            return after;
+        }
+    }
+}
@@ -1,21 +1,36 @@
 package com.example.shoplinker; // Declares the package for the ShopCommands class.
 
 import com.mojang.brigadier.CommandDispatcher; // Imports CommandDispatcher for registering commands.
+import com.mojang.brigadier.StringReader; // Imports StringReader for parsing "/shop edit" changes.
+import com.mojang.brigadier.arguments.IntegerArgumentType; // Imports IntegerArgumentType for numeric command arguments.
 import com.mojang.brigadier.arguments.StringArgumentType; // Imports StringArgumentType for string command arguments.
 import com.mojang.brigadier.context.CommandContext; // Imports CommandContext for command execution context.
 import com.mojang.brigadier.exceptions.CommandSyntaxException; // Imports CommandSyntaxException for handling command syntax errors.
+import com.mojang.brigadier.exceptions.DynamicCommandExceptionType; // Imports DynamicCommandExceptionType for "/shop edit" parse errors.
 import net.minecraft.commands.CommandSourceStack; // Imports CommandSourceStack for accessing command source information.
 import net.minecraft.commands.Commands; // Imports Commands for command literal and argument helpers.
+import net.minecraft.commands.SharedSuggestionProvider; // Imports SharedSuggestionProvider for argument suggestions.
 import net.minecraft.network.chat.ClickEvent; // Imports ClickEvent for handling clickable text events.
 import net.minecraft.network.chat.Component; // Imports Component for creating translatable text.
 import net.minecraft.network.chat.MutableComponent; // Imports MutableComponent for modifiable text components.
 import net.minecraft.network.chat.Style; // Imports Style for applying styles to text components.
+import net.minecraft.server.level.ServerPlayer; // Imports ServerPlayer for resolving who ran a command.
 import net.neoforged.bus.api.SubscribeEvent; // Imports SubscribeEvent for event bus subscriptions.
 import net.neoforged.neoforge.event.RegisterCommandsEvent; // Imports RegisterCommandsEvent for command registration.
 
+import java.time.Instant; // Imports Instant for audit record timestamps.
+import java.time.ZoneId; // Imports ZoneId for displaying audit timestamps in server time.
+import java.time.format.DateTimeFormatter; // Imports DateTimeFormatter for audit timestamps.
+import java.util.ArrayList; // Imports ArrayList for building sorted rankings.
+import java.util.HashMap; // Imports HashMap for collecting "/shop edit" fields.
+import java.util.Objects; // Imports Objects for null-safe field comparisons.
 import java.util.List; // Imports List for handling collections of shop entries.
+import java.util.Map; // Imports Map for per-shop statistics totals.
 import java.util.Optional; // Imports Optional for handling nullable shop entries.
 import java.util.UUID; // Imports UUID for unique player identification.
+import java.util.concurrent.TimeUnit; // Imports TimeUnit for converting statistic periods.
+import java.util.function.BiFunction; // Imports BiFunction for building update success messages.
+import java.util.function.Function; // Imports Function for resolving the player behind a command source.
 
 import net.minecraft.ChatFormatting; // Imports ChatFormatting for chat colors.
 
@@ -24,6 +39,32 @@ import net.minecraft.ChatFormatting; // Imports ChatFormatting for chat colors.
  * It uses the Brigadier command library for command parsing and execution.
  */
 public class ShopCommands {
+    // Periods accepted by "/shop top", the default being the first one.
+    private static final List<String> TOP_PERIODS = List.of("day", "hour", "week", "month", "all");
+    // Maximum number of shops shown by "/shop top".
+    private static final int TOP_LIMIT = 10;
+    // Fields accepted by "/shop edit".
+    private static final List<String> EDIT_FIELDS = List.of("name", "description", "url", "version");
+    // Errors raised while parsing "/shop edit" changes.
+    private static final DynamicCommandExceptionType EDIT_UNKNOWN_FIELD = new DynamicCommandExceptionType(
+            field -> Component.translatable("commands.shoplinker.edit.unknown_field", field));
+    private static final DynamicCommandExceptionType EDIT_DUPLICATE_FIELD = new DynamicCommandExceptionType(
+            field -> Component.translatable("commands.shoplinker.edit.duplicate_field", field));
+    private static final DynamicCommandExceptionType EDIT_INVALID_VERSION = new DynamicCommandExceptionType(
+            value -> Component.translatable("commands.shoplinker.edit.invalid_version", value));
+    // Maximum number of shop names suggested when a lookup fails.
+    private static final int SUGGESTION_LIMIT = 3;
+    // Maximum number of audit records shown by "/shop history".
+    private static final int HISTORY_LIMIT = 10;
+    // Format of the timestamps shown by "/shop history".
+    private static final DateTimeFormatter HISTORY_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
+    // Resolves the UUID of the player behind a command source, or null for the console and command blocks.
+    // Only replaced by the load-test harness, whose simulated players have no ServerPlayer entity.
+    static Function<CommandSourceStack, UUID> playerResolver = source -> {
+        ServerPlayer player = source.getPlayer();
+        return player != null ? player.getUUID() : null;
+    };
+
     /**
      * This method registers all the shop-related commands when the RegisterCommandsEvent is fired.
      * It sets up the command structure, including subcommands, arguments, and permission checks.
@@ -32,8 +73,16 @@ public class ShopCommands {
      */
     @SubscribeEvent
     public static void registerCommands(RegisterCommandsEvent event) {
-        CommandDispatcher<CommandSourceStack> dispatcher = event.getDispatcher(); // Get the command dispatcher.
+        register(event.getDispatcher()); // Register on the server's command dispatcher.
+    }
 
+    /**
+     * Registers the "/shop" command tree on a dispatcher.
+     * Separate from the event handler so tools such as the load-test harness can build their own dispatcher.
+     *
+     * @param dispatcher The command dispatcher to register the commands on.
+     */
+    public static void register(CommandDispatcher<CommandSourceStack> dispatcher) {
         // Register the base "shop" command.
         dispatcher.register(
             Commands.literal("shop") // Defines the base command "/shop".
@@ -85,12 +134,46 @@ public class ShopCommands {
                         )
                     )
                 )
+                // Subcommand for changing several fields at once: "/shop edit <name> <field>=<value>..."
+                .then(Commands.literal("edit")
+                    .requires(source -> source.hasPermission(0)) // Owner or OP, checked in applyUpdate.
+                    .then(Commands.argument("name", StringArgumentType.string())
+                        .then(Commands.argument("changes", StringArgumentType.greedyString())
+                            .executes(ShopCommands::editShop)
+                        )
+                    )
+                )
+                // Subcommand for setting a shop's lifetime: "/shop expire <name> <days>" (0 = never expires)
+                .then(Commands.literal("expire")
+                    .requires(source -> source.hasPermission(0)) // Owner or OP, checked in expireShop.
+                    .then(Commands.argument("name", StringArgumentType.string())
+                        .then(Commands.argument("days", IntegerArgumentType.integer(0, 3650))
+                            .executes(ShopCommands::expireShop)
+                        )
+                    )
+                )
                 // NEW Subcommand: /shop info <name>
                 .then(Commands.literal("info")
                     .then(Commands.argument("name", StringArgumentType.string())
                         .executes(ShopCommands::shopInfo) // Execute shopInfo method
                     )
                 )
+                // Subcommand for shop statistics: "/shop top [period]"
+                .then(Commands.literal("top")
+                    .requires(source -> source.hasPermission(2)) // Requires permission level 2 (OP).
+                    .executes(context -> topShops(context, TOP_PERIODS.get(0))) // Defaults to the last day.
+                    .then(Commands.argument("period", StringArgumentType.word())
+                        .suggests((context, builder) -> SharedSuggestionProvider.suggest(TOP_PERIODS, builder))
+                        .executes(context -> topShops(context, StringArgumentType.getString(context, "period")))
+                    )
+                )
+                // Subcommand for the audit trail of a shop: "/shop history <name>"
+                .then(Commands.literal("history")
+                    .requires(source -> source.hasPermission(2)) // Requires permission level 2 (OP).
+                    .then(Commands.argument("name", StringArgumentType.string())
+                        .executes(ShopCommands::shopHistory)
+                    )
+                )
         );
     }
 
@@ -117,6 +200,7 @@ public class ShopCommands {
         // Iterate through each shop and format its display.
         for (ShopEntry shop : shops) {
             String shopName = shop.getName(); // Get shop name.
+            ShopLinker.shopAnalytics.recordImpression(shopName); // Count this shop as seen in a list.
             String shopDescription = shop.getDescription(); // Get shop description.
             String shopUrl = shop.getUrl(); // Get shop URL.
 
@@ -166,11 +250,13 @@ public class ShopCommands {
             return 0; // Indicate failure.
         }
 
-        UUID playerUUID = source.getPlayerOrException().getUUID(); // Get the UUID of the player who executed the command.
+        UUID playerUUID = getPlayerUUID(source); // Get the UUID of the player who executed the command.
 
         ShopEntry newShop = new ShopEntry(shopName, shopDescription, shopUrl, playerUUID); // Create a new ShopEntry object.
         // Attempt to add the shop using the shop manager.
         if (ShopLinker.shopManager.addShop(newShop)) {
+            ShopLinker.shopAuditLog.record(playerUUID, "add", null, newShop); // Audit the creation.
+            ShopLinker.shopExpiry.schedule(newShop); // Start tracking its expiry.
             source.sendSuccess(() -> Component.translatable("commands.shoplinker.add.success", shopName), true); // Send success message.
         } else {
             source.sendFailure(Component.translatable("commands.shoplinker.add.exists", shopName)); // Send "shop already exists" message.
@@ -197,9 +283,11 @@ public class ShopCommands {
         if (shopToRemove.isPresent()) {
             ShopEntry shop = shopToRemove.get(); // Get the ShopEntry object.
             // Check if the command source has permission level 2 (OP) OR is the owner of the shop.
-            if (source.hasPermission(2) || source.getPlayerOrException().getUUID().equals(shop.getOwnerUUID())) {
+            if (source.hasPermission(2) || getPlayerUUID(source).equals(shop.getOwnerUUID())) {
                 // Attempt to remove the shop.
                 if (ShopLinker.shopManager.removeShop(shopName)) {
+                    ShopLinker.shopAuditLog.record(getActorUUID(source), "remove", shop, null); // Audit the removal.
+                    ShopLinker.shopAnalytics.forget(shop.getName()); // Its stats no longer belong to any shop.
                     source.sendSuccess(() -> Component.translatable("commands.shoplinker.remove.success", shopName), true); // Send success message.
                 } else {
                     source.sendFailure(Component.translatable("commands.shoplinker.remove.not_found", shopName)); // Should not happen if shopToRemove.isPresent() is true.
@@ -209,6 +297,7 @@ public class ShopCommands {
             }
         } else {
             source.sendFailure(Component.translatable("commands.shoplinker.remove.not_found", shopName)); // Send "shop not found" message.
+            sendSuggestions(source, shopName); // Suggest close shop names.
         }
         return 1; // Indicate success or that an attempt was made.
     }
@@ -224,70 +313,194 @@ public class ShopCommands {
      * @throws CommandSyntaxException If the player cannot be determined from the source.
      */
     private static int modifyShop(CommandContext<CommandSourceStack> context, String fieldToModify) throws CommandSyntaxException {
-        CommandSourceStack source = context.getSource(); // Get the source of the command.
         String oldShopName = StringArgumentType.getString(context, "shopName"); // Get the name of the shop to modify.
 
-        Optional<ShopEntry> optionalShop = ShopLinker.shopManager.getShopByName(oldShopName); // Try to find the shop by its old name.
+        // Build a single-field update for the requested field.
+        String newValue;
+        ShopManager.ShopUpdate update;
+        switch (fieldToModify) {
+            case "name":
+                newValue = StringArgumentType.getString(context, "newName"); // Get the new name.
+                update = new ShopManager.ShopUpdate(newValue, null, null);
+                break;
+            case "description":
+                newValue = StringArgumentType.getString(context, "newDescription"); // Get the new description.
+                update = new ShopManager.ShopUpdate(null, newValue, null);
+                break;
+            case "url":
+                newValue = StringArgumentType.getString(context, "newUrl"); // Get the new URL.
+                update = new ShopManager.ShopUpdate(null, null, newValue);
+                break;
+            default:
+                context.getSource().sendFailure(Component.translatable("commands.shoplinker.generic.error")); // Should not be reached with the registered subcommands.
+                return 0;
+        }
+
+        return applyUpdate(context.getSource(), oldShopName, -1, update, "modify",
+                (before, after) -> Component.translatable("commands.shoplinker.modify.success", oldShopName, fieldToModify, newValue));
+    }
+
+    /**
+     * Executes the "/shop edit <name> <changes>" command. It changes several fields at once, e.g.
+     * {@code name=NewName description="New text" url=https://example.com}. All fields are validated
+     * before anything is applied, and the shop is saved once. An optional {@code version=<n>} makes the
+     * edit fail if the shop was changed by someone else since revision n (shown by "/shop info").
+     *
+     * @param context The command context.
+     * @return 1 if the shop is updated successfully, 0 otherwise.
+     * @throws CommandSyntaxException If the changes cannot be parsed or the player cannot be determined.
+     */
+    private static int editShop(CommandContext<CommandSourceStack> context) throws CommandSyntaxException {
+        String shopName = StringArgumentType.getString(context, "name");
+        StringReader reader = new StringReader(StringArgumentType.getString(context, "changes"));
+
+        Map<String, String> values = new HashMap<>();
+        reader.skipWhitespace();
+        while (reader.canRead()) {
+            String field = reader.readUnquotedString();
+            if (!EDIT_FIELDS.contains(field)) {
+                throw EDIT_UNKNOWN_FIELD.createWithContext(reader, field);
+            }
+            if (values.containsKey(field)) {
+                throw EDIT_DUPLICATE_FIELD.createWithContext(reader, field);
+            }
+            reader.expect('=');
+            values.put(field, readEditValue(reader));
+            reader.skipWhitespace();
+        }
+
+        long expectedVersion = -1;
+        if (values.containsKey("version")) {
+            try {
+                expectedVersion = Long.parseLong(values.get("version"));
+            } catch (NumberFormatException e) {
+                throw EDIT_INVALID_VERSION.create(values.get("version"));
+            }
+        }
+
+        ShopManager.ShopUpdate update = new ShopManager.ShopUpdate(values.get("name"), values.get("description"), values.get("url"));
+        return applyUpdate(context.getSource(), shopName, expectedVersion, update, "edit",
+                (before, after) -> Component.translatable("commands.shoplinker.edit.success", before.getName(), describeChanges(before, after)));
+    }
+
+    /**
+     * Reads one "/shop edit" value: either a quoted string or everything up to the next space,
+     * so URLs do not need to be quoted.
+     */
+    private static String readEditValue(StringReader reader) throws CommandSyntaxException {
+        if (reader.canRead() && StringReader.isQuotedStringStart(reader.peek())) {
+            return reader.readQuotedString();
+        }
+        int start = reader.getCursor();
+        while (reader.canRead() && reader.peek() != ' ') {
+            reader.skip();
+        }
+        return reader.getString().substring(start, reader.getCursor());
+    }
+
+    /**
+     * Shared implementation of "/shop modify" and "/shop edit". It checks that the shop exists and that
+     * the source is its owner or an OP, applies the update atomically through the ShopManager, then
+     * reports the outcome, records it in the audit log and reschedules the shop's expiry.
+     *
+     * @param source The command source.
+     * @param shopName The name of the shop to update.
+     * @param expectedVersion The version the changes are based on, or -1 to skip the check.
+     * @param update The new field values.
+     * @param action The audit log action name.
+     * @param successMessage Builds the success message from the shop state before and after the update.
+     * @return 1 if the shop was updated, 0 otherwise.
+     * @throws CommandSyntaxException If the player cannot be determined from the source.
+     */
+    private static int applyUpdate(CommandSourceStack source, String shopName, long expectedVersion, ShopManager.ShopUpdate update,
+                                   String action, BiFunction<ShopEntry, ShopEntry, Component> successMessage) throws CommandSyntaxException {
+        Optional<ShopEntry> optionalShop = ShopLinker.shopManager.getShopByName(shopName); // Try to find the shop by its current name.
 
         // Check if the shop exists.
         if (optionalShop.isEmpty()) {
-            source.sendFailure(Component.translatable("commands.shoplinker.modify.not_found", oldShopName)); // Send "shop not found" message.
+            source.sendFailure(Component.translatable("commands.shoplinker.modify.not_found", shopName)); // Send "shop not found" message.
+            sendSuggestions(source, shopName); // Suggest close shop names.
             return 0; // Indicate failure.
         }
 
-        ShopEntry shopToModify = optionalShop.get(); // Get the ShopEntry object.
-        UUID playerUUID = source.getPlayerOrException().getUUID(); // Get the UUID of the player who executed the command.
+        ShopEntry shop = optionalShop.get(); // Get the ShopEntry object.
+        UUID playerUUID = getPlayerUUID(source); // Get the UUID of the player who executed the command.
 
         // Check if the command source has permission level 2 (OP) AND is NOT the owner of the shop.
         // If neither is true, permission is denied.
-        if (!source.hasPermission(2) && !playerUUID.equals(shopToModify.getOwnerUUID())) {
+        if (!source.hasPermission(2) && !playerUUID.equals(shop.getOwnerUUID())) {
             source.sendFailure(Component.translatable("commands.shoplinker.generic.no_permission")); // Send permission denied message.
             return 0; // Indicate failure.
         }
 
-        boolean modified = false; // Flag to track if a modification occurred.
-        String tempNewValue = ""; // Temporary variable to hold the new value.
+        ShopEntry before = ShopAuditLog.snapshot(shop); // Keep the previous values for the audit log.
+        // A successful edit by the owner counts as activity; rejected edits leave the shop untouched.
+        long touchedAt = playerUUID.equals(shop.getOwnerUUID()) ? System.currentTimeMillis() : 0;
+
+        switch (ShopLinker.shopManager.updateShop(shopName, expectedVersion, update, touchedAt)) {
+            case SUCCESS:
+                source.sendSuccess(() -> successMessage.apply(before, shop), true); // Send success message with details.
+                ShopLinker.shopAuditLog.record(playerUUID, action, before, shop); // Audit the modification.
+                ShopLinker.shopAnalytics.rename(before.getName(), shop.getName()); // Stats follow the shop when renamed.
+                ShopLinker.shopExpiry.schedule(shop); // The name or last-touched time may have changed.
+                return 1;
+            case NAME_TAKEN:
+                source.sendFailure(Component.translatable("commands.shoplinker.modify.name_exists", update.name())); // Send "name already exists" message.
+                return 0;
+            case INVALID_URL:
+                source.sendFailure(Component.translatable("commands.shoplinker.add.invalid_url")); // Send invalid URL message.
+                return 0;
+            case VERSION_CONFLICT:
+                source.sendFailure(Component.translatable("commands.shoplinker.edit.conflict", shop.getName(), expectedVersion, shop.getVersion()));
+                return 0;
+            case NO_CHANGES:
+                source.sendFailure(Component.translatable("commands.shoplinker.edit.no_changes", shop.getName()));
+                return 0;
+            default:
+                source.sendFailure(Component.translatable("commands.shoplinker.generic.error")); // NOT_FOUND cannot happen after the lookup above.
+                return 0;
+        }
+    }
 
-        // Use a switch statement to handle different fields to modify.
-        switch (fieldToModify) {
-            case "name":
-                tempNewValue = StringArgumentType.getString(context, "newName"); // Get the new name.
-                // Check if a shop with the new name already exists AND it's not the same as the old name.
-                if (ShopLinker.shopManager.getShopByName(tempNewValue).isPresent() && !tempNewValue.equalsIgnoreCase(oldShopName)) {
-                    source.sendFailure(Component.translatable("commands.shoplinker.modify.name_exists", tempNewValue)); // Send "name already exists" message.
-                    return 0; // Indicate failure.
-                }
-                shopToModify.setName(tempNewValue); // Set the new name.
-                modified = true; // Mark as modified.
-                break;
-            case "description":
-                tempNewValue = StringArgumentType.getString(context, "newDescription"); // Get the new description.
-                shopToModify.setDescription(tempNewValue); // Set the new description.
-                modified = true; // Mark as modified.
-                break;
-            case "url":
-                tempNewValue = StringArgumentType.getString(context, "newUrl"); // Get the new URL.
-                // Validate the new URL format if it's not empty.
-                if (!tempNewValue.isEmpty() && !(tempNewValue.startsWith("http://") || tempNewValue.startsWith("https://"))) {
-                    source.sendFailure(Component.translatable("commands.shoplinker.add.invalid_url")); // Send invalid URL message.
-                    return 0; // Indicate failure.
-                }
-                shopToModify.setUrl(tempNewValue); // Set the new URL.
-                modified = true; // Mark as modified.
-                break;
+    /**
+     * Executes the "/shop expire" command. It sets how many days a shop stays listed before
+     * it is pruned and archived, or removes the limit when given 0 days.
+     * Only the shop owner or an OP (permission level 2) may change it.
+     *
+     * @param context The command context.
+     * @return 1 if the expiry is updated, 0 otherwise.
+     */
+    private static int expireShop(CommandContext<CommandSourceStack> context) {
+        CommandSourceStack source = context.getSource();
+        String name = StringArgumentType.getString(context, "name");
+        int days = IntegerArgumentType.getInteger(context, "days");
+
+        Optional<ShopEntry> shopOpt = ShopLinker.shopManager.getShopByName(name);
+        if (shopOpt.isEmpty()) {
+            source.sendFailure(Component.translatable("commands.shoplinker.modify.not_found", name));
+            sendSuggestions(source, name);
+            return 0;
+        }
+
+        ShopEntry shop = shopOpt.get();
+        UUID actor = getActorUUID(source);
+        if (!source.hasPermission(2) && (actor == null || !actor.equals(shop.getOwnerUUID()))) {
+            source.sendFailure(Component.translatable("commands.shoplinker.generic.no_permission"));
+            return 0;
         }
 
-        // If a modification occurred, update the shop and send a success message.
-        if (modified) {
-            final String finalNewValue = tempNewValue; // Final variable for lambda expression.
+        ShopEntry before = ShopAuditLog.snapshot(shop);
+        shop.setExpiresAt(days == 0 ? 0 : System.currentTimeMillis() + TimeUnit.DAYS.toMillis(days));
+        ShopLinker.shopManager.updateShop(shop);
+        ShopLinker.shopAuditLog.record(actor, "expire", before, shop);
+        ShopLinker.shopExpiry.schedule(shop);
 
-            source.sendSuccess(() -> Component.translatable("commands.shoplinker.modify.success", oldShopName, fieldToModify, finalNewValue), true); // Send success message with details.
-            ShopLinker.shopManager.updateShop(shopToModify); // Update the shop in the shop manager.
+        if (days == 0) {
+            source.sendSuccess(() -> Component.translatable("commands.shoplinker.expiry.cleared", shop.getName()), true);
         } else {
-            source.sendFailure(Component.translatable("commands.shoplinker.generic.error")); // Send a generic error if no modification happened (should not be reached with current logic).
+            source.sendSuccess(() -> Component.translatable("commands.shoplinker.expiry.set", shop.getName(), days), true);
         }
-
-        return 1; // Indicate success or that an attempt was made.
+        return 1;
     }
 
     /**
@@ -305,6 +518,7 @@ public class ShopCommands {
 
         if (shopOpt.isPresent()) {
             ShopEntry shop = shopOpt.get();
+            ShopLinker.shopAnalytics.recordView(shop.getName()); // Count this info lookup as a view.
             source.sendSuccess(() -> Component.translatable("commands.shoplinker.info.header", shop.getName()).withStyle(ChatFormatting.GOLD), false);
             source.sendSuccess(() -> Component.translatable("commands.shoplinker.info.description", shop.getDescription()).withStyle(ChatFormatting.WHITE), false);
             if (!shop.getUrl().isEmpty()) {
@@ -318,6 +532,8 @@ public class ShopCommands {
                 source.sendSuccess(() -> Component.translatable("commands.shoplinker.info.no_url").withStyle(ChatFormatting.GRAY), false);
             }
 
+            source.sendSuccess(() -> Component.translatable("commands.shoplinker.info.revision", shop.getVersion()).withStyle(ChatFormatting.GRAY), false);
+
             // Only send owner UUID if the player has permission level 2 or higher
             if (source.hasPermission(2)) {
                 source.sendSuccess(() -> Component.translatable("commands.shoplinker.info.owner", shop.getOwnerUUID().toString()).withStyle(ChatFormatting.GRAY), false);
@@ -325,7 +541,168 @@ public class ShopCommands {
 
         } else {
             source.sendFailure(Component.translatable("commands.shoplinker.info.not_found", name));
+            sendSuggestions(source, name);
         }
         return 1;
     }
+
+    /**
+     * Executes the "/shop top [period]" command. It ranks shops by "/shop info" views
+     * (then by list impressions) over the given period, using the rolled up statistics only.
+     *
+     * @param context The command context.
+     * @param period One of "hour", "day", "week", "month" or "all".
+     * @return 1 if the ranking is displayed, 0 otherwise.
+     */
+    private static int topShops(CommandContext<CommandSourceStack> context, String period) {
+        CommandSourceStack source = context.getSource();
+
+        long periodMillis;
+        switch (period) {
+            case "hour" -> periodMillis = TimeUnit.HOURS.toMillis(1);
+            case "day" -> periodMillis = TimeUnit.DAYS.toMillis(1);
+            case "week" -> periodMillis = TimeUnit.DAYS.toMillis(7);
+            case "month" -> periodMillis = TimeUnit.DAYS.toMillis(30);
+            case "all" -> periodMillis = -1;
+            default -> {
+                source.sendFailure(Component.translatable("commands.shoplinker.top.invalid_period", period, String.join(", ", TOP_PERIODS)));
+                return 0;
+            }
+        }
+
+        List<Map.Entry<String, long[]>> ranking = new ArrayList<>(ShopLinker.shopAnalytics.totals(periodMillis).entrySet());
+        if (ranking.isEmpty()) {
+            source.sendSuccess(() -> Component.translatable("commands.shoplinker.top.empty"), false);
+            return 0;
+        }
+        ranking.sort((a, b) -> {
+            int byViews = Long.compare(b.getValue()[ShopAnalytics.VIEWS], a.getValue()[ShopAnalytics.VIEWS]);
+            return byViews != 0 ? byViews : Long.compare(b.getValue()[ShopAnalytics.IMPRESSIONS], a.getValue()[ShopAnalytics.IMPRESSIONS]);
+        });
+
+        source.sendSuccess(() -> Component.translatable("commands.shoplinker.top.title", period), false);
+        for (int i = 0; i < Math.min(TOP_LIMIT, ranking.size()); i++) {
+            Map.Entry<String, long[]> entry = ranking.get(i);
+            // Stats are keyed by lowercased name; show the current spelling if the shop still exists.
+            String shopName = ShopLinker.shopManager.getShopByName(entry.getKey()).map(ShopEntry::getName).orElse(entry.getKey());
+            int rank = i + 1;
+            source.sendSuccess(() -> Component.translatable("commands.shoplinker.top.entry", rank, shopName,
+                    entry.getValue()[ShopAnalytics.VIEWS], entry.getValue()[ShopAnalytics.IMPRESSIONS]), false);
+        }
+        return 1;
+    }
+
+    /**
+     * Executes the "/shop history <name>" command. It shows the most recent audited mutations
+     * of a shop (current or former name), read through the audit log's per-shop offset index.
+     *
+     * @param context The command context.
+     * @return 1 if records are displayed, 0 if the shop has no recorded history.
+     */
+    private static int shopHistory(CommandContext<CommandSourceStack> context) {
+        CommandSourceStack source = context.getSource();
+        String name = StringArgumentType.getString(context, "name");
+
+        List<ShopAuditLog.AuditRecord> records = ShopLinker.shopAuditLog.history(name, HISTORY_LIMIT);
+        if (records.isEmpty()) {
+            source.sendFailure(Component.translatable("commands.shoplinker.history.empty", name));
+            return 0;
+        }
+
+        source.sendSuccess(() -> Component.translatable("commands.shoplinker.history.title", name), false);
+        for (ShopAuditLog.AuditRecord record : records) {
+            String time = HISTORY_TIME_FORMAT.format(Instant.ofEpochMilli(record.getTimestamp()));
+            Component actor = record.getActor() == null
+                    ? Component.translatable("commands.shoplinker.history.console")
+                    : Component.literal(record.getActor().toString());
+            String changes = describeChanges(record.getBefore(), record.getAfter());
+            source.sendSuccess(() -> Component.translatable("commands.shoplinker.history." + record.getAction(), time, actor, changes), false);
+        }
+        return 1;
+    }
+
+    /**
+     * Builds a short "field: 'old' -> 'new'" summary of the differences between two shop states.
+     * For a creation or removal, the values of the existing side are listed instead.
+     *
+     * @param before The shop state before the change, may be null.
+     * @param after The shop state after the change, may be null.
+     * @return A human-readable summary of the changed fields.
+     */
+    private static String describeChanges(ShopEntry before, ShopEntry after) {
+        if (before == null || after == null) {
+            ShopEntry shop = before != null ? before : after;
+            return "'" + shop.getName() + "', '" + shop.getDescription() + "', '" + shop.getUrl() + "'";
+        }
+
+        List<String> changes = new ArrayList<>();
+        if (!Objects.equals(before.getName(), after.getName())) {
+            changes.add("name: '" + before.getName() + "' -> '" + after.getName() + "'");
+        }
+        if (!Objects.equals(before.getDescription(), after.getDescription())) {
+            changes.add("description: '" + before.getDescription() + "' -> '" + after.getDescription() + "'");
+        }
+        if (!Objects.equals(before.getUrl(), after.getUrl())) {
+            changes.add("url: '" + before.getUrl() + "' -> '" + after.getUrl() + "'");
+        }
+        if (before.getExpiresAt() != after.getExpiresAt()) {
+            changes.add("expires: " + formatExpiry(before.getExpiresAt()) + " -> " + formatExpiry(after.getExpiresAt()));
+        }
+        return String.join(", ", changes);
+    }
+
+    private static String formatExpiry(long expiresAt) {
+        return expiresAt <= 0 ? "never" : HISTORY_TIME_FORMAT.format(Instant.ofEpochMilli(expiresAt));
+    }
+
+    /**
+     * Sends a "did you mean" line listing the existing shops closest to a name that was not found.
+     * Each suggestion can be clicked to look the shop up. Nothing is sent if no shop is close enough.
+     *
+     * @param source The command source to reply to.
+     * @param name The shop name that was not found.
+     */
+    private static void sendSuggestions(CommandSourceStack source, String name) {
+        List<String> suggestions = ShopLinker.shopManager.suggestShopNames(name, SUGGESTION_LIMIT);
+        if (suggestions.isEmpty()) {
+            return;
+        }
+
+        MutableComponent names = Component.empty();
+        for (int i = 0; i < suggestions.size(); i++) {
+            String suggestion = suggestions.get(i);
+            if (i > 0) {
+                names.append(Component.literal(", "));
+            }
+            names.append(Component.literal(suggestion).withStyle(Style.EMPTY
+                    .withColor(ChatFormatting.AQUA)
+                    .withClickEvent(new ClickEvent(ClickEvent.Action.SUGGEST_COMMAND, "/shop info \"" + suggestion + "\""))));
+        }
+        source.sendSuccess(() -> Component.translatable("commands.shoplinker.generic.did_you_mean", names), false);
+    }
+
+    /**
+     * Resolves the UUID of the player behind a command source, for audit purposes.
+     *
+     * @param source The command source.
+     * @return The player's UUID, or null if the command was run from the console or a command block.
+     */
+    private static UUID getActorUUID(CommandSourceStack source) {
+        return playerResolver.apply(source);
+    }
+
+    /**
+     * Resolves the UUID of the player behind a command source, for commands only players may run.
+     *
+     * @param source The command source.
+     * @return The player's UUID.
+     * @throws CommandSyntaxException If the command was not run by a player.
+     */
+    private static UUID getPlayerUUID(CommandSourceStack source) throws CommandSyntaxException {
+        UUID playerUUID = getActorUUID(source);
+        if (playerUUID == null) {
+            throw CommandSourceStack.ERROR_NOT_PLAYER.create(); // Same error as getPlayerOrException().
+        }
+        return playerUUID;
+    }
 }
\ No newline at end of file
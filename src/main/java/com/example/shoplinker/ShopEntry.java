@@ -11,6 +11,9 @@ public class ShopEntry {
     private String description;
     private String url;
     private UUID ownerUUID; // UUID of the player who created the shop
+    private long lastTouched; // Last time (epoch millis) the owner was seen or edited the shop
+    private long expiresAt; // Optional expiry time (epoch millis), 0 if the shop never expires
+    private long version; // Incremented on every update, used to detect concurrent edits
 
     /**
      * Constructor for creating new shop entries.
@@ -25,6 +28,22 @@ public class ShopEntry {
         this.description = description;
         this.url = url;
         this.ownerUUID = ownerUUID;
+        this.lastTouched = System.currentTimeMillis();
+    }
+
+    /**
+     * Copy constructor, used to take detached snapshots of a shop.
+     *
+     * @param other The shop entry to copy.
+     */
+    public ShopEntry(ShopEntry other) {
+        this.name = other.name;
+        this.description = other.description;
+        this.url = other.url;
+        this.ownerUUID = other.ownerUUID;
+        this.lastTouched = other.lastTouched;
+        this.expiresAt = other.expiresAt;
+        this.version = other.version;
     }
 
     /**
@@ -70,6 +89,30 @@ public class ShopEntry {
         return ownerUUID;
     }
 
+    /**
+     * Gets the last time the owner was seen or edited the shop.
+     * @return The last-touched time in epoch milliseconds, or 0 if unknown (older data files).
+     */
+    public long getLastTouched() {
+        return lastTouched;
+    }
+
+    /**
+     * Gets the time at which the shop expires.
+     * @return The expiry time in epoch milliseconds, or 0 if the shop never expires.
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * Gets the version (revision) of this shop, incremented by every update made through ShopManager.
+     * @return The current version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
     // --- Setters (for modification via commands) ---
 
     /**
@@ -96,6 +139,29 @@ public class ShopEntry {
         this.url = url;
     }
 
+    /**
+     * Sets the last time the owner was seen or edited the shop.
+     * @param lastTouched The time in epoch milliseconds.
+     */
+    public void setLastTouched(long lastTouched) {
+        this.lastTouched = lastTouched;
+    }
+
+    /**
+     * Sets the time at which the shop expires.
+     * @param expiresAt The expiry time in epoch milliseconds, or 0 to never expire.
+     */
+    public void setExpiresAt(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Bumps the version after an update. Only ShopManager should call this.
+     */
+    void incrementVersion() {
+        this.version++;
+    }
+
     @Override
     public String toString() {
         return "ShopEntry{" +
@@ -103,6 +169,9 @@ public class ShopEntry {
                ", description='" + description + '\'' +
                ", url='" + url + '\'' +
                ", ownerUUID=" + ownerUUID +
+               ", lastTouched=" + lastTouched +
+               ", expiresAt=" + expiresAt +
+               ", version=" + version +
                '}';
     }
 }
\ No newline at end of file
@@ -0,0 +1,272 @@
+package com.example.shoplinker;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.mojang.logging.LogUtils;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import org.slf4j.Logger;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expires shops whose TTL has passed or whose owner has been inactive for too long.
+ * <p>
+ * Deadlines are kept in a priority queue ordered by time, so each tick only looks at the head of the
+ * queue instead of scanning every shop. Touching or editing a shop simply pushes a new deadline; the
+ * outdated one is recognised and dropped when it reaches the head. Each tick handles at most one batch of
+ * queue entries, outdated ones included. Expired shops are appended to an archive file (one JSON line per
+ * shop, so archiving never rewrites older entries) and their online owners are notified. The shop file is
+ * rewritten once the due entries are drained, or every {@link #SAVE_INTERVAL_MILLIS} while a backlog
+ * lasts, rather than after every batch.
+ */
+public class ShopExpiryScheduler {
+
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final long ARCHIVE_RETRY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    // Longest time pruned shops stay removed in memory only while a backlog is still being worked through
+    private static final long SAVE_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final Gson gson = new GsonBuilder().create(); // One archived shop per line, so no pretty printing
+    private final ShopManager shopManager;
+    private final Path archiveFile;
+    private final long inactivityMillis;
+    private final long warningMillis;
+    private final int batchSize;
+    private final PriorityQueue<Deadline> queue = new PriorityQueue<>((a, b) -> Long.compare(a.at(), b.at()));
+    private long unsavedSince; // When the oldest prune not yet written to the shop file happened, or 0
+
+    /**
+     * Constructs the scheduler and queues a deadline for every existing shop.
+     *
+     * @param shopManager The shop manager holding the live registry.
+     * @param archiveFile The JSON lines file pruned shops are appended to.
+     * @param inactivityMillis How long an owner may stay away before their shops expire, or 0 to disable.
+     * @param warningMillis How long before a deadline online owners are warned.
+     * @param batchSize The maximum number of queue entries (warnings, expiries or outdated deadlines) handled per server tick.
+     */
+    public ShopExpiryScheduler(ShopManager shopManager, Path archiveFile,
+                               long inactivityMillis, long warningMillis, int batchSize) {
+        this.shopManager = shopManager;
+        this.archiveFile = archiveFile;
+        this.inactivityMillis = inactivityMillis;
+        this.warningMillis = warningMillis;
+        this.batchSize = batchSize;
+        for (ShopEntry shop : shopManager.getAllShops()) {
+            schedule(shop);
+        }
+    }
+
+    /**
+     * Computes when a shop expires, from its TTL and the owner's inactivity limit.
+     *
+     * @param shop The shop to check.
+     * @return The deadline in epoch milliseconds, or 0 if the shop never expires.
+     */
+    public long deadlineOf(ShopEntry shop) {
+        long ttlDeadline = shop.getExpiresAt();
+        long inactivityDeadline = inactivityMillis > 0 ? shop.getLastTouched() + inactivityMillis : 0;
+        if (ttlDeadline <= 0) {
+            return inactivityDeadline;
+        }
+        if (inactivityDeadline <= 0) {
+            return ttlDeadline;
+        }
+        return Math.min(ttlDeadline, inactivityDeadline);
+    }
+
+    /**
+     * (Re)schedules a shop after it has been added, touched, renamed or had its TTL changed.
+     *
+     * @param shop The shop to schedule.
+     */
+    public void schedule(ShopEntry shop) {
+        long deadline = deadlineOf(shop);
+        if (deadline <= 0) {
+            return;
+        }
+        enqueue(shop, deadline, System.currentTimeMillis());
+
+        // Outdated deadlines are only dropped lazily, so compact if they start to dominate.
+        if (queue.size() > 4 * (shopManager.getAllShops().size() + 16)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Marks a shop as used by its owner and reschedules it.
+     *
+     * @param shop The shop to touch.
+     * @param now The current time in epoch milliseconds.
+     */
+    public void touch(ShopEntry shop, long now) {
+        shop.setLastTouched(now);
+        schedule(shop);
+    }
+
+    /**
+     * Refreshes the shops of a player who just logged in and warns them about upcoming expirations.
+     *
+     * @param player The player who logged in.
+     */
+    public void onOwnerLogin(ServerPlayer player) {
+        List<ShopEntry> owned = shopManager.getShopsByOwner(player.getUUID());
+        if (owned.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (ShopEntry shop : owned) {
+            touch(shop, now);
+            long deadline = deadlineOf(shop);
+            if (deadline > 0 && deadline - now <= warningMillis) {
+                warn(player, shop, deadline, now);
+            }
+        }
+        shopManager.saveActivity(); // Persist the new last-touched times in one save, without a version bump
+    }
+
+    /**
+     * Processes at most one batch of due queue entries, so a backlog (for example many outdated
+     * deadlines after a burst of edits) is spread over several ticks.
+     * Meant to be called every server tick; it is a single peek when nothing is due.
+     *
+     * @param server The running server, used to reach online owners.
+     * @param now The current time in epoch milliseconds.
+     */
+    public void tick(MinecraftServer server, long now) {
+        List<ShopEntry> expired = new ArrayList<>();
+        boolean touched = false;
+        int polled = 0;
+        while (polled < batchSize && !queue.isEmpty() && queue.peek().at() <= now) {
+            Deadline due = queue.poll();
+            polled++; // Outdated entries cost a lookup too, so they count against the budget
+
+            Optional<ShopEntry> shopOpt = shopManager.getShopByName(due.key());
+            if (shopOpt.isEmpty() || deadlineOf(shopOpt.get()) != due.deadline()) {
+                continue; // Shop removed, renamed or rescheduled since this deadline was queued
+            }
+
+            ShopEntry shop = shopOpt.get();
+            ServerPlayer owner = server.getPlayerList().getPlayer(shop.getOwnerUUID());
+            if (due.warning()) {
+                if (owner != null) {
+                    warn(owner, shop, due.deadline(), now);
+                }
+            } else if (owner != null && shop.getExpiresAt() != due.deadline()) {
+                // Inactivity deadline, but the owner is online right now: they are clearly not inactive.
+                touch(shop, now);
+                touched = true;
+            } else if (!expired.contains(shop)) {
+                expired.add(shop);
+            }
+        }
+
+        if (!expired.isEmpty()) {
+            prune(server, expired, now);
+        }
+
+        boolean drained = queue.isEmpty() || queue.peek().at() > now;
+        if (unsavedSince != 0 && (drained || now - unsavedSince >= SAVE_INTERVAL_MILLIS)) {
+            unsavedSince = 0;
+            if (shopManager.flushPendingSave()) {
+                touched = false; // The full save also covered the new last-touched times
+            }
+        }
+        if (touched) {
+            shopManager.saveActivity(); // One save per tick for all owners found online
+        }
+    }
+
+    private void prune(MinecraftServer server, List<ShopEntry> expired, long now) {
+        if (!archive(expired)) {
+            // Keep the shops rather than lose them, and try again a bit later.
+            for (ShopEntry shop : expired) {
+                queue.add(new Deadline(now + ARCHIVE_RETRY_MILLIS, shop.getName().toLowerCase(Locale.ROOT), deadlineOf(shop), false));
+            }
+            return;
+        }
+        shopManager.removeShopsDeferred(expired); // Written by tick() once the backlog is drained
+        if (unsavedSince == 0) {
+            unsavedSince = now;
+        }
+
+        for (ShopEntry shop : expired) {
+            LOGGER.info("Shop '{}' expired and was archived", shop.getName());
+            ShopLinker.shopAuditLog.record(null, "prune", shop, null);
+            ShopLinker.shopAnalytics.forget(shop.getName());
+            ServerPlayer owner = server.getPlayerList().getPlayer(shop.getOwnerUUID());
+            if (owner != null) {
+                owner.sendSystemMessage(Component.translatable("commands.shoplinker.expiry.pruned", shop.getName()));
+            }
+        }
+    }
+
+    /**
+     * Appends the pruned shops to the archive file, one JSON object per line.
+     *
+     * @return true if every shop was written.
+     */
+    private boolean archive(List<ShopEntry> expired) {
+        if (archiveFile.getParent() != null) {
+            archiveFile.getParent().toFile().mkdirs();
+        }
+        try (Writer writer = new FileWriter(archiveFile.toFile(), StandardCharsets.UTF_8, true)) {
+            StringBuilder lines = new StringBuilder();
+            for (ShopEntry shop : expired) {
+                lines.append(gson.toJson(shop)).append('\n');
+            }
+            writer.write(lines.toString());
+            return true;
+        } catch (IOException e) {
+            LOGGER.error("Failed to archive {} expired shops to {}: {}", expired.size(), archiveFile, e.getMessage());
+            return false;
+        }
+    }
+
+    private void warn(ServerPlayer owner, ShopEntry shop, long deadline, long now) {
+        long hoursLeft = Math.max(0, TimeUnit.MILLISECONDS.toHours(deadline - now));
+        owner.sendSystemMessage(Component.translatable("commands.shoplinker.expiry.warning", shop.getName(), hoursLeft));
+    }
+
+    private void enqueue(ShopEntry shop, long deadline, long now) {
+        String key = shop.getName().toLowerCase(Locale.ROOT);
+        // A warning whose time has already passed would only repeat itself, logins cover that case.
+        if (deadline - warningMillis > now) {
+            queue.add(new Deadline(deadline - warningMillis, key, deadline, true));
+        }
+        queue.add(new Deadline(deadline, key, deadline, false));
+    }
+
+    private void rebuild() {
+        queue.clear();
+        long now = System.currentTimeMillis();
+        for (ShopEntry shop : shopManager.getAllShops()) {
+            long deadline = deadlineOf(shop);
+            if (deadline > 0) {
+                enqueue(shop, deadline, now);
+            }
+        }
+    }
+
+    /**
+     * A queued event for one shop: either the warning ahead of its deadline or the deadline itself.
+     *
+     * @param at When the event fires, in epoch milliseconds.
+     * @param key The lowercased name of the shop.
+     * @param deadline The shop deadline this event was computed from, used to detect outdated entries.
+     * @param warning true for the early warning, false for the actual expiry.
+     */
+    private record Deadline(long at, String key, long deadline, boolean warning) {
+    }
+}
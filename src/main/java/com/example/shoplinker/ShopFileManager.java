@@ -10,9 +10,13 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Manages the loading and saving of shop data to and from a JSON file.
@@ -23,6 +27,7 @@ public class ShopFileManager {
     private static final Logger LOGGER = LogUtils.getLogger();
     private final Gson gson;
     private final Path filePath;
+    private final LongAdder bytesWritten = new LongAdder(); // Total size of all successful saves
 
     /**
      * Constructs a ShopFileManager with a specific file path.
@@ -63,9 +68,21 @@ public class ShopFileManager {
         }
     }
 
+    /**
+     * Gets the total number of bytes written by successful saves since this manager was created.
+     * Useful to compare the disk cost of persistence strategies.
+     *
+     * @return The number of bytes written.
+     */
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
     /**
      * Saves the list of shops to the JSON file.
      * Creates the parent directory if it does not exist.
+     * The data is written to a temporary file which then replaces the real one, so external
+     * readers of the file never see a half-written version.
      *
      * @param shops The list of shops to save.
      * @return true if saving was successful, false otherwise.
@@ -77,11 +94,18 @@ public class ShopFileManager {
                 filePath.getParent().toFile().mkdirs();
             }
 
-            try (FileWriter writer = new FileWriter(filePath.toFile())) {
+            Path tempPath = filePath.resolveSibling(filePath.getFileName() + ".tmp");
+            try (FileWriter writer = new FileWriter(tempPath.toFile())) {
                 gson.toJson(shops, writer); // Serialize the list of shops to JSON
-                LOGGER.info("Saved {} shops to {}", shops.size(), filePath);
-                return true;
             }
+            try {
+                Files.move(tempPath, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempPath, filePath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            bytesWritten.add(Files.size(filePath));
+            LOGGER.info("Saved {} shops to {}", shops.size(), filePath);
+            return true;
         } catch (IOException e) {
             LOGGER.error("Failed to save shops to {}: {}", filePath, e.getMessage());
             return false;
@@ -0,0 +1,203 @@
+package com.example.shoplinker;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.mojang.logging.LogUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Optional read-only HTTP/JSON endpoint for the shop directory, built on the JDK's HTTP server.
+ * <p>
+ * Requests are served on virtual threads from the ShopManager's immutable snapshot, so they never
+ * touch the live registry or the shop file. Every response carries the snapshot tag (a per-run id plus the
+ * registry version) as its ETag; a poll with a matching If-None-Match gets an empty 304 without any
+ * serialization, and a tag from before a restart never matches.
+ * <ul>
+ *     <li>{@code GET /shops?page=1&size=50&q=text} - paginated list, optionally filtered by name/description</li>
+ *     <li>{@code GET /shops/<name>} - a single shop</li>
+ * </ul>
+ */
+public class ShopHttpServer {
+
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+
+    private final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+    private final ShopManager shopManager;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Binds the HTTP server to the given address. Call {@link #start()} to begin serving.
+     *
+     * @param shopManager The shop manager whose snapshots are served.
+     * @param host The address to bind to (localhost by default).
+     * @param port The port to listen on.
+     * @throws IOException If the address cannot be bound.
+     */
+    public ShopHttpServer(ShopManager shopManager, String host, int port) throws IOException {
+        this.shopManager = shopManager;
+        this.server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server.setExecutor(executor);
+        this.server.createContext("/shops", this::handle);
+    }
+
+    /**
+     * Starts serving requests.
+     */
+    public void start() {
+        server.start();
+        LOGGER.info("Shop HTTP API listening on http://{}:{}/shops", server.getAddress().getHostString(), server.getAddress().getPort());
+    }
+
+    /**
+     * Stops the server, giving in-flight requests up to one second to complete.
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            ShopManager.Snapshot snapshot = shopManager.getSnapshot();
+            String etag = "\"" + snapshot.tag() + "\"";
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1); // Nothing changed since the client's copy
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            Object body;
+            if (path.equals("/shops") || path.equals("/shops/")) {
+                body = listShops(snapshot, parseQuery(exchange.getRequestURI().getRawQuery()));
+            } else {
+                body = findShop(snapshot, path.substring("/shops/".length()));
+                if (body == null) {
+                    sendJson(exchange, 404, new ErrorJson("shop not found"));
+                    return;
+                }
+            }
+            sendJson(exchange, 200, body);
+        } catch (RuntimeException e) {
+            LOGGER.error("Shop HTTP API failed to handle {}", exchange.getRequestURI(), e);
+            if (exchange.getResponseCode() == -1) { // Headers not sent yet, so the client can still be told
+                sendJson(exchange, 500, new ErrorJson("internal error"));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private PageJson listShops(ShopManager.Snapshot snapshot, Map<String, String> query) {
+        int page = Math.max(1, parseInt(query.get("page"), 1));
+        int size = Math.min(MAX_PAGE_SIZE, Math.max(1, parseInt(query.get("size"), DEFAULT_PAGE_SIZE)));
+        String search = query.getOrDefault("q", "").toLowerCase(Locale.ROOT);
+
+        List<ShopEntry> matching = snapshot.shops();
+        if (!search.isEmpty()) {
+            matching = new ArrayList<>();
+            for (ShopEntry shop : snapshot.shops()) {
+                if (shop.getName().toLowerCase(Locale.ROOT).contains(search)
+                        || shop.getDescription().toLowerCase(Locale.ROOT).contains(search)) {
+                    matching.add(shop);
+                }
+            }
+        }
+
+        int from = (int) Math.min((long) (page - 1) * size, matching.size());
+        int to = Math.min(from + size, matching.size());
+        List<ShopJson> shops = new ArrayList<>(to - from);
+        for (ShopEntry shop : matching.subList(from, to)) {
+            shops.add(ShopJson.of(shop));
+        }
+        return new PageJson(snapshot.version(), page, size, matching.size(), shops);
+    }
+
+    private ShopJson findShop(ShopManager.Snapshot snapshot, String name) {
+        for (ShopEntry shop : snapshot.shops()) {
+            if (shop.getName().equalsIgnoreCase(name)) {
+                return ShopJson.of(shop);
+            }
+        }
+        return null;
+    }
+
+    private void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        boolean head = exchange.getRequestMethod().equals("HEAD");
+        exchange.sendResponseHeaders(status, head ? -1 : bytes.length);
+        if (!head) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.putIfAbsent(key, value);
+        }
+        return params;
+    }
+
+    private static int parseInt(String value, int fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * Public JSON form of a shop; the owner UUID is deliberately left out.
+     */
+    private record ShopJson(String name, String description, String url, long revision) {
+        static ShopJson of(ShopEntry shop) {
+            return new ShopJson(shop.getName(), shop.getDescription(), shop.getUrl(), shop.getVersion());
+        }
+    }
+
+    private record PageJson(long version, int page, int size, int total, List<ShopJson> shops) {
+    }
+
+    private record ErrorJson(String error) {
+    }
+}
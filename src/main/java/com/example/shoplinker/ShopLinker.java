@@ -15,9 +15,14 @@ import net.neoforged.fml.event.lifecycle.FMLCommonSetupEvent;
 import net.neoforged.neoforge.common.NeoForge;
 
 // Imports for data persistence (your custom classes)
+import net.neoforged.neoforge.event.entity.player.PlayerEvent;
 import net.neoforged.neoforge.event.server.ServerStartingEvent;
 import net.neoforged.neoforge.event.server.ServerStoppingEvent;
+import net.neoforged.neoforge.event.tick.ServerTickEvent;
+import net.minecraft.server.level.ServerPlayer;
+import java.io.IOException;
 import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Main mod class for ShopLinker.
@@ -33,6 +38,10 @@ public class ShopLinker {
     // Static instances of our custom managers, accessible throughout the mod.
     public static ShopManager shopManager;
     public static ShopFileManager shopFileManager;
+    public static ShopAnalytics shopAnalytics;
+    public static ShopAuditLog shopAuditLog;
+    public static ShopExpiryScheduler shopExpiry;
+    public static ShopHttpServer shopHttpServer;
 
     /**
      * Constructor for the ShopLinker mod.
@@ -85,6 +94,61 @@ public class ShopLinker {
         shopFileManager = new ShopFileManager(shopsFilePath);
         // Load shops from the file and initialize the ShopManager with them.
         shopManager = new ShopManager(shopFileManager.loadShops());
+
+        // Shop view statistics are kept in their own file so they never touch the shop registry.
+        shopAnalytics = new ShopAnalytics(dataDir.resolve("shoplinker_stats.json"),
+                TimeUnit.MINUTES.toMillis(Config.STATS_ROLLUP_MINUTES.get()),
+                TimeUnit.DAYS.toMillis(Config.STATS_RETENTION_DAYS.get()));
+        shopAnalytics.load();
+
+        // Every shop mutation is appended to the audit log by a background writer.
+        shopAuditLog = new ShopAuditLog(dataDir.resolve("shoplinker_audit"), Config.AUDIT_SEGMENT_KB.get() * 1024L);
+
+        // Expired shops are moved to a separate archive file instead of being deleted.
+        shopExpiry = new ShopExpiryScheduler(shopManager,
+                dataDir.resolve("shoplinker_archived_shops.jsonl"),
+                TimeUnit.DAYS.toMillis(Config.SHOP_INACTIVE_DAYS.get()),
+                TimeUnit.HOURS.toMillis(Config.EXPIRY_WARNING_HOURS.get()),
+                Config.PRUNE_BATCH_SIZE.get());
+
+        // Optional read-only HTTP API, served from ShopManager snapshots on its own threads.
+        if (Config.HTTP_ENABLED.get()) {
+            try {
+                shopHttpServer = new ShopHttpServer(shopManager, Config.HTTP_HOST.get(), Config.HTTP_PORT.get());
+                shopHttpServer.start();
+            } catch (IOException e) {
+                LOGGER.error("Failed to start the shop HTTP API on {}:{}: {}", Config.HTTP_HOST.get(), Config.HTTP_PORT.get(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Event listener fired at the end of every server tick.
+     * Used to periodically roll up the shop statistics counters and to prune expired shops.
+     *
+     * @param event The ServerTickEvent.Post.
+     */
+    @SubscribeEvent
+    public void onServerTick(ServerTickEvent.Post event) {
+        if (shopAnalytics != null) {
+            shopAnalytics.tick(System.currentTimeMillis());
+        }
+        if (shopExpiry != null) {
+            shopExpiry.tick(event.getServer(), System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Event listener for when a player joins the server.
+     * Refreshes the inactivity timer of the player's shops and warns them about upcoming expirations.
+     *
+     * @param event The PlayerLoggedInEvent.
+     */
+    @SubscribeEvent
+    public void onPlayerLoggedIn(PlayerEvent.PlayerLoggedInEvent event) {
+        if (shopExpiry != null && event.getEntity() instanceof ServerPlayer player) {
+            shopExpiry.onOwnerLogin(player);
+        }
     }
 
     /**
@@ -97,10 +161,20 @@ public class ShopLinker {
     @SubscribeEvent
     public void onServerStopping(ServerStoppingEvent event) {
         LOGGER.info("Server is stopping, saving shops...");
+        if (shopHttpServer != null) {
+            shopHttpServer.stop();
+            shopHttpServer = null;
+        }
         // Ensure both managers are initialized before attempting to save.
         if (shopManager != null && shopFileManager != null) {
             shopFileManager.saveShops(shopManager.getAllShops());
         }
+        if (shopAnalytics != null) {
+            shopAnalytics.close(); // Final rollup, then waits for the background writer
+        }
+        if (shopAuditLog != null) {
+            shopAuditLog.close(); // Flushes the records still queued for writing
+        }
     }
 
     // All DeferredRegister and example objects have been removed from this class.
@@ -4,19 +4,44 @@ import com.mojang.logging.LogUtils;
 import org.slf4j.Logger;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Manages the collection of ShopEntry objects, providing methods for
  * adding, removing, updating, and retrieving shop data.
  * This class acts as the central point for interacting with shop data in memory.
+ * <p>
+ * ShopManager is not thread-safe and must only be used from the server thread. Other threads
+ * (e.g. the HTTP API) may only call {@link #getSnapshot()}, which returns an immutable copy.
  */
 public class ShopManager {
     private static final Logger LOGGER = LogUtils.getLogger(); // Own LOGGER for ShopManager
+    // Shops saved before last-touched tracking existed get a start time spread over this window, so they do not all expire together
+    private static final long LEGACY_TOUCH_SPREAD_MILLIS = TimeUnit.DAYS.toMillis(1);
     private List<ShopEntry> shops;
     private final ShopFileManager fileManager; // Reference to the file manager for persistence
+    private final ShopNameIndex nameIndex = new ShopNameIndex(); // BK-tree used for "did you mean" suggestions
+    // Name each shop is currently indexed under, to detect renames done through ShopEntry setters
+    private final Map<ShopEntry, String> indexedNames = new IdentityHashMap<>();
+    // Immutable copy of the registry for readers on other threads (e.g. the HTTP API), replaced on every change
+    private volatile Snapshot snapshot;
+    // Each shop's copy in the latest snapshot, to tell visible changes made through ShopEntry setters from activity updates
+    private final Map<ShopEntry, ShopEntry> published = new IdentityHashMap<>();
+    private long registryVersion; // Incremented on every change, exposed through the snapshot
+    private boolean savePending; // Changes made through removeShopsDeferred() that are not on disk yet
+    // Registry versions restart at 0 with every ShopManager, so snapshots also carry a per-instance id
+    private final String instanceId = Long.toString(System.currentTimeMillis(), 36) + "-"
+            + Integer.toString(ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE), 36);
 
     /**
      * Constructs a ShopManager.
@@ -27,8 +52,17 @@ public class ShopManager {
     public ShopManager(List<ShopEntry> initialShops) {
         // Create a copy to prevent direct external modifications to the internal list
         this.shops = new ArrayList<>(initialShops); 
+        // Shops saved before last-touched tracking existed start their inactivity period within the next day
+        long now = System.currentTimeMillis();
+        for (ShopEntry shop : this.shops) {
+            if (shop.getLastTouched() == 0) {
+                shop.setLastTouched(now + ThreadLocalRandom.current().nextLong(LEGACY_TOUCH_SPREAD_MILLIS));
+            }
+            index(shop);
+        }
         // Ensure ShopLinker.shopFileManager is initialized before this constructor is called.
         this.fileManager = ShopLinker.shopFileManager; 
+        publishSnapshot();
     }
 
     /**
@@ -36,6 +70,16 @@ public class ShopManager {
      * This ensures that any changes to the shops list are persisted to disk.
      */
     private void save() {
+        registryVersion++;
+        publishSnapshot(); // Every change goes through save(), so readers see it right away
+        writeShops();
+    }
+
+    /**
+     * Writes the whole registry to disk, which also covers any deferred changes.
+     */
+    private void writeShops() {
+        savePending = false;
         if (fileManager != null) {
             fileManager.saveShops(this.shops);
         } else {
@@ -44,6 +88,30 @@ public class ShopManager {
         }
     }
 
+    /**
+     * Replaces the published snapshot with a detached copy of the current registry.
+     */
+    private void publishSnapshot() {
+        List<ShopEntry> copies = new ArrayList<>(this.shops.size());
+        published.clear();
+        for (ShopEntry shop : this.shops) {
+            ShopEntry copy = new ShopEntry(shop);
+            copies.add(copy);
+            published.put(shop, copy);
+        }
+        this.snapshot = new Snapshot(instanceId, registryVersion, Collections.unmodifiableList(copies));
+    }
+
+    /**
+     * Gets an immutable copy of the registry that is safe to read from any thread.
+     * The snapshot is replaced (never modified) whenever the registry changes.
+     *
+     * @return The latest snapshot.
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
     /**
      * Adds a new shop entry to the manager.
      *
@@ -56,6 +124,7 @@ public class ShopManager {
             return false; // Shop with this name already exists
         }
         this.shops.add(shop);
+        index(shop);
         save(); // Save after adding
         return true;
     }
@@ -67,29 +136,186 @@ public class ShopManager {
      * @return true if the shop was found and removed, false otherwise.
      */
     public boolean removeShop(String name) {
-        boolean removed = this.shops.removeIf(shop -> shop.getName().equalsIgnoreCase(name));
+        boolean removed = this.shops.removeIf(shop -> {
+            if (shop.getName().equalsIgnoreCase(name)) {
+                unindex(shop);
+                return true;
+            }
+            return false;
+        });
         if (removed) {
             save(); // Save after removal
         }
         return removed;
     }
 
+    /**
+     * Removes several shop entries at once, saving only once.
+     *
+     * @param toRemove The ShopEntry objects to remove (matched by identity).
+     * @return The number of shops actually removed.
+     */
+    public int removeShops(Collection<ShopEntry> toRemove) {
+        int removed = removeAll(toRemove);
+        if (removed > 0) {
+            save(); // Single save for the whole batch
+        }
+        return removed;
+    }
+
+    /**
+     * Removes several shop entries at once without writing the file, for callers that remove
+     * shops in many small batches (e.g. expiry pruning). The removal is published to readers
+     * right away; it reaches the disk with the next save or {@link #flushPendingSave()}.
+     *
+     * @param toRemove The ShopEntry objects to remove (matched by identity).
+     * @return The number of shops actually removed.
+     */
+    public int removeShopsDeferred(Collection<ShopEntry> toRemove) {
+        int removed = removeAll(toRemove);
+        if (removed > 0) {
+            registryVersion++;
+            publishSnapshot();
+            savePending = true;
+        }
+        return removed;
+    }
+
+    private int removeAll(Collection<ShopEntry> toRemove) {
+        Set<ShopEntry> removeSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        removeSet.addAll(toRemove);
+        int sizeBefore = this.shops.size();
+        this.shops.removeIf(shop -> {
+            if (removeSet.contains(shop)) {
+                unindex(shop);
+                return true;
+            }
+            return false;
+        });
+        return sizeBefore - this.shops.size();
+    }
+
+    /**
+     * Writes the registry if changes made through {@link #removeShopsDeferred(Collection)} are not on disk yet.
+     *
+     * @return true if a save was needed.
+     */
+    public boolean flushPendingSave() {
+        if (!savePending) {
+            return false;
+        }
+        writeShops();
+        return true;
+    }
+
+    /**
+     * Atomically applies a multi-field update to a shop.
+     * All fields are validated first; only then are they applied together, with a single
+     * name index update and a single save. If {@code expectedVersion} is not negative, the update
+     * is rejected unless the shop is still at that version (compare-and-set).
+     *
+     * @param name The current name of the shop to update.
+     * @param expectedVersion The version the caller based its changes on, or -1 to skip the check.
+     * @param update The new field values; null fields are left unchanged.
+     * @param touchedAt The time to record as owner activity if the update succeeds, or 0 when the editor is not the owner.
+     * @return The outcome of the update.
+     */
+    public UpdateResult updateShop(String name, long expectedVersion, ShopUpdate update, long touchedAt) {
+        Optional<ShopEntry> shopOpt = getShopByName(name);
+        if (shopOpt.isEmpty()) {
+            return UpdateResult.NOT_FOUND;
+        }
+        ShopEntry shop = shopOpt.get();
+        if (expectedVersion >= 0 && shop.getVersion() != expectedVersion) {
+            return UpdateResult.VERSION_CONFLICT;
+        }
+        if (update.url() != null && !isValidUrl(update.url())) {
+            return UpdateResult.INVALID_URL;
+        }
+        boolean renamed = update.name() != null && !update.name().equals(shop.getName());
+        if (renamed && !update.name().equalsIgnoreCase(shop.getName()) && getShopByName(update.name()).isPresent()) {
+            return UpdateResult.NAME_TAKEN;
+        }
+        boolean changed = renamed
+                || (update.description() != null && !update.description().equals(shop.getDescription()))
+                || (update.url() != null && !update.url().equals(shop.getUrl()));
+        if (!changed) {
+            return UpdateResult.NO_CHANGES;
+        }
+
+        if (renamed) {
+            nameIndex.remove(indexedNames.getOrDefault(shop, shop.getName()));
+            shop.setName(update.name());
+            index(shop);
+        }
+        if (update.description() != null) {
+            shop.setDescription(update.description());
+        }
+        if (update.url() != null) {
+            shop.setUrl(update.url());
+        }
+        if (touchedAt > 0) {
+            shop.setLastTouched(touchedAt);
+        }
+        shop.incrementVersion();
+        save(); // One save for all the changed fields
+        return UpdateResult.SUCCESS;
+    }
+
+    /**
+     * Checks that a shop URL is either empty or an http(s) link.
+     *
+     * @param url The URL to check.
+     * @return true if the URL can be stored on a shop.
+     */
+    public static boolean isValidUrl(String url) {
+        return url.isEmpty() || url.startsWith("http://") || url.startsWith("https://");
+    }
+
     /**
      * Triggers a save operation after an existing ShopEntry object has been modified externally.
      * Since modifications are done directly on the ShopEntry object retrieved from the list,
-     * this method ensures the updated state is persisted.
+     * this method ensures the updated state is persisted. The shop's version (and the registry's)
+     * only changes if its name, description, URL or expiry changed since it was last published.
      *
      * @param shop The modified ShopEntry object.
      * @return true (assuming the object was successfully modified elsewhere).
      */
     public boolean updateShop(ShopEntry shop) {
         // The ShopEntry object in the 'shops' list is modified directly by setters
-        // called from the command handler (ShopCommands::modifyShop).
-        // Therefore, we just need to ensure the data is saved to file.
+        // called from elsewhere (e.g. ShopCommands::expireShop).
+        // Therefore, we just need to re-index it in case it was renamed and ensure the data is saved to file.
+        ShopEntry previous = published.get(shop);
+        if (previous != null && !hasVisibleChanges(previous, shop)) {
+            saveActivity(); // Nothing a client can see changed, keep the versions
+            return true;
+        }
+        shop.incrementVersion();
+        String indexedName = indexedNames.get(shop);
+        if (indexedName != null && !indexedName.equals(shop.getName())) {
+            nameIndex.remove(indexedName);
+            index(shop);
+        }
         save(); // Save after an update
         return true; 
     }
 
+    /**
+     * Persists last-touched times, which are not part of a shop's visible state, without changing
+     * any version. Used when owners log in or are found online at their inactivity deadline, so
+     * activity never invalidates a pending "/shop edit" or an HTTP client's cached copy.
+     */
+    public void saveActivity() {
+        writeShops();
+    }
+
+    private static boolean hasVisibleChanges(ShopEntry previous, ShopEntry current) {
+        return !Objects.equals(previous.getName(), current.getName())
+                || !Objects.equals(previous.getDescription(), current.getDescription())
+                || !Objects.equals(previous.getUrl(), current.getUrl())
+                || previous.getExpiresAt() != current.getExpiresAt();
+    }
+
     /**
      * Retrieves a shop entry by its name.
      *
@@ -102,6 +328,29 @@ public class ShopManager {
                 .findFirst();
     }
 
+    /**
+     * Suggests existing shop names close to one that was not found.
+     *
+     * @param name The name that did not match any shop.
+     * @param limit The maximum number of suggestions.
+     * @return The closest shop names, best match first (possibly empty).
+     */
+    public List<String> suggestShopNames(String name, int limit) {
+        return nameIndex.suggest(name, limit);
+    }
+
+    /**
+     * Retrieves every shop owned by a player.
+     *
+     * @param ownerUUID The UUID of the owner.
+     * @return A list of the shops owned by this player, possibly empty.
+     */
+    public List<ShopEntry> getShopsByOwner(UUID ownerUUID) {
+        return this.shops.stream()
+                .filter(shop -> ownerUUID.equals(shop.getOwnerUUID()))
+                .toList();
+    }
+
     /**
      * Gets an unmodifiable list of all registered shops.
      *
@@ -110,4 +359,57 @@ public class ShopManager {
     public List<ShopEntry> getAllShops() {
         return Collections.unmodifiableList(shops); 
     }
+
+    private void index(ShopEntry shop) {
+        nameIndex.add(shop.getName());
+        indexedNames.put(shop, shop.getName());
+    }
+
+    private void unindex(ShopEntry shop) {
+        published.remove(shop);
+        String indexedName = indexedNames.remove(shop);
+        nameIndex.remove(indexedName != null ? indexedName : shop.getName());
+    }
+
+    /**
+     * Immutable view of the registry at a given version.
+     *
+     * @param instanceId Identifies the ShopManager that published the snapshot; differs after every restart.
+     * @param version The registry version, incremented on every change.
+     * @param shops Detached copies of all shops, in registration order.
+     */
+    public record Snapshot(String instanceId, long version, List<ShopEntry> shops) {
+
+        /**
+         * A tag that changes whenever the registry does, and never repeats across restarts
+         * (the version alone starts at 0 again each time).
+         *
+         * @return The instance id and version, e.g. {@code "lq3k9x1a-1b2c3d-42"}.
+         */
+        public String tag() {
+            return instanceId + "-" + version;
+        }
+    }
+
+    /**
+     * New values for a multi-field shop update. A null field means "leave unchanged".
+     *
+     * @param name The new shop name.
+     * @param description The new description.
+     * @param url The new URL (empty to remove it).
+     */
+    public record ShopUpdate(String name, String description, String url) {
+    }
+
+    /**
+     * Outcome of {@link #updateShop(String, long, ShopUpdate, long)}.
+     */
+    public enum UpdateResult {
+        SUCCESS,
+        NOT_FOUND,
+        VERSION_CONFLICT, // The shop changed since the caller read it
+        NAME_TAKEN,
+        INVALID_URL,
+        NO_CHANGES
+    }
 }
\ No newline at end of file
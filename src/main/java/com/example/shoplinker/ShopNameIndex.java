@@ -0,0 +1,219 @@
+package com.example.shoplinker;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * BK-tree over normalized shop names, used to suggest close matches when a lookup misses.
+ * <p>
+ * A BK-tree only compares the query against the few nodes whose distance to their parent keeps them
+ * within range (triangle inequality), so suggestions stay fast even with many shops. It is maintained
+ * incrementally: removals only mark nodes as deleted, and the tree is rebuilt once deleted nodes
+ * outnumber live ones.
+ */
+public class ShopNameIndex {
+
+    private Node root;
+    private int liveCount;
+    private int deletedCount;
+
+    /**
+     * Normalizes a shop name the same way lookups compare names (case-insensitive).
+     *
+     * @param name The shop name.
+     * @return The normalized key.
+     */
+    public static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Adds a shop name to the index, or revives it if it was previously removed.
+     *
+     * @param name The shop name, in its display spelling.
+     */
+    public void add(String name) {
+        String key = normalize(name);
+        if (root == null) {
+            root = new Node(key, name);
+            liveCount++;
+            return;
+        }
+
+        Node node = root;
+        while (true) {
+            int distance = distance(key, node.key);
+            if (distance == 0) {
+                if (node.deleted) {
+                    node.deleted = false;
+                    deletedCount--;
+                    liveCount++;
+                }
+                node.displayName = name;
+                return;
+            }
+            Node child = node.children.get(distance);
+            if (child == null) {
+                node.children.put(distance, new Node(key, name));
+                node.maxChildEdge = Math.max(node.maxChildEdge, distance);
+                liveCount++;
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Removes a shop name from the index.
+     *
+     * @param name The shop name.
+     */
+    public void remove(String name) {
+        String key = normalize(name);
+        Node node = root;
+        while (node != null) {
+            int distance = distance(key, node.key);
+            if (distance == 0) {
+                if (!node.deleted) {
+                    node.deleted = true;
+                    liveCount--;
+                    deletedCount++;
+                    if (deletedCount > liveCount) {
+                        rebuild();
+                    }
+                }
+                return;
+            }
+            node = node.children.get(distance);
+        }
+    }
+
+    /**
+     * Finds the indexed names closest to a (misspelled) name.
+     *
+     * @param name The name that was not found.
+     * @param limit The maximum number of suggestions.
+     * @return Display names of the closest shops, best match first.
+     */
+    public List<String> suggest(String name, int limit) {
+        String key = normalize(name);
+        int maxDistance = maxDistanceFor(key);
+        List<Match> matches = new ArrayList<>();
+
+        Deque<Node> pending = new ArrayDeque<>();
+        if (root != null) {
+            pending.push(root);
+        }
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            // Past maxChildEdge + maxDistance neither this node nor any child can match, so stop counting there.
+            int distance = distance(key, node.key, node.maxChildEdge + maxDistance);
+            if (distance <= maxDistance && !node.deleted) {
+                matches.add(new Match(node.displayName, distance));
+            }
+            // Only children whose edge label is within maxDistance of ours can hold a match.
+            for (Map.Entry<Integer, Node> child : node.children.entrySet()) {
+                if (Math.abs(child.getKey() - distance) <= maxDistance) {
+                    pending.push(child.getValue());
+                }
+            }
+        }
+
+        matches.sort(Comparator.comparingInt(Match::distance).thenComparing(Match::name, String.CASE_INSENSITIVE_ORDER));
+        List<String> names = new ArrayList<>(Math.min(limit, matches.size()));
+        for (int i = 0; i < Math.min(limit, matches.size()); i++) {
+            names.add(matches.get(i).name());
+        }
+        return names;
+    }
+
+    /**
+     * One typo for short names, two otherwise; larger radii make the search visit most of the tree.
+     */
+    private static int maxDistanceFor(String key) {
+        return key.length() <= 4 ? 1 : 2;
+    }
+
+    private void rebuild() {
+        List<String> names = new ArrayList<>(liveCount);
+        Deque<Node> pending = new ArrayDeque<>();
+        if (root != null) {
+            pending.push(root);
+        }
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            if (!node.deleted) {
+                names.add(node.displayName);
+            }
+            pending.addAll(node.children.values());
+        }
+
+        root = null;
+        liveCount = 0;
+        deletedCount = 0;
+        for (String name : names) {
+            add(name);
+        }
+    }
+
+    /**
+     * Levenshtein distance between two strings, using two rolling rows.
+     */
+    static int distance(String a, String b) {
+        return distance(a, b, Integer.MAX_VALUE - 1);
+    }
+
+    /**
+     * Levenshtein distance between two strings, giving up as soon as it is known to exceed {@code cap}.
+     *
+     * @return The exact distance if it is at most {@code cap}, otherwise {@code cap + 1}.
+     */
+    static int distance(String a, String b, int cap) {
+        if (Math.abs(a.length() - b.length()) > cap) {
+            return cap + 1;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > cap) {
+                return cap + 1; // Every later row can only be larger
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], cap + 1);
+    }
+
+    private static class Node {
+        private final String key;
+        private String displayName;
+        private boolean deleted;
+        private int maxChildEdge; // Largest distance label among the children, bounds the search
+        private final Map<Integer, Node> children = new HashMap<>();
+
+        Node(String key, String displayName) {
+            this.key = key;
+            this.displayName = displayName;
+        }
+    }
+
+    private record Match(String name, int distance) {
+    }
+}